@@ -0,0 +1,149 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * AscendingKeyIterator
+ *
+ * Iterates over the keys of a FibonacciHeap in ascending order, without changing the heap.
+ *
+ * The iterator keeps a frontier of nodes whose parent was already returned: a binary heap stored in a pair
+ * of parallel arrays (keys, nodes), so no node is allocated while iterating. The first key is the heap's
+ * min. The roots are put into the frontier only when a second key is requested, with a linear heapify, and
+ * every returned node adds its children. Returning k keys costs O(#trees + k * deg * log(k * deg)), where
+ * deg = O(log n) is the maximal rank.
+ *
+ * Cancelled nodes (see FibonacciHeap.cancel) are walked through but not returned.
+ * The heap must not be changed while it is iterated.
+ */
+public class AscendingKeyIterator implements PrimitiveIterator.OfInt
+{
+    private final FibonacciHeap heap;
+    private int[] keys;
+    private FibonacciHeap.HeapNode[] nodes;
+    private int count;
+    private boolean started;
+    private boolean rootsAdded;
+    private int remaining;
+
+    public AscendingKeyIterator(FibonacciHeap heap) {
+        this.heap = heap;
+        this.remaining = heap.size();
+        this.keys = new int[16];
+        this.nodes = new FibonacciHeap.HeapNode[16];
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.remaining > 0;
+    }
+
+    @Override
+    public int nextInt() {
+        if (this.remaining == 0)
+            throw new NoSuchElementException();
+        this.remaining--;
+        FibonacciHeap.HeapNode node;
+        if (!this.started) { // The min is known without looking at the other roots
+            this.started = true;
+            node = this.heap.getMin();
+            this.pushChildren(node);
+        } else {
+            if (!this.rootsAdded) {
+                this.rootsAdded = true;
+                this.addRoots();
+            }
+            do { // Cancelled nodes are skipped, but their children may be live
+                node = this.poll();
+                this.pushChildren(node);
+            } while (node.isCancelled());
+        }
+        return node.getKey();
+    }
+
+    private void pushChildren(FibonacciHeap.HeapNode node) {
+        FibonacciHeap.HeapNode child = node.getChild();
+        if (child != null) {
+            do {
+                this.push(child);
+                child = child.getNext();
+            } while (child != node.getChild());
+        }
+    }
+
+    /**
+     * private void addRoots()
+     *
+     * Puts all the roots but the min into the frontier, next to the min's children, and heapifies the
+     * frontier in linear time
+     *
+     */
+    private void addRoots() {
+        FibonacciHeap.HeapNode min = this.heap.getMin();
+        FibonacciHeap.HeapNode root = this.heap.getFirst();
+        do {
+            if (root != min) {
+                this.ensureCapacity(this.count + 1);
+                this.keys[this.count] = root.getKey();
+                this.nodes[this.count] = root;
+                this.count++;
+            }
+            root = root.getNext();
+        } while (root != this.heap.getFirst());
+        for (int i = (this.count >>> 1) - 1; i >= 0; i--)
+            this.siftDown(i);
+    }
+
+    private void push(FibonacciHeap.HeapNode node) {
+        this.ensureCapacity(this.count + 1);
+        int key = node.getKey();
+        int i = this.count++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (this.keys[parent] <= key)
+                break;
+            this.keys[i] = this.keys[parent];
+            this.nodes[i] = this.nodes[parent];
+            i = parent;
+        }
+        this.keys[i] = key;
+        this.nodes[i] = node;
+    }
+
+    private FibonacciHeap.HeapNode poll() {
+        FibonacciHeap.HeapNode top = this.nodes[0];
+        int last = --this.count;
+        this.keys[0] = this.keys[last];
+        this.nodes[0] = this.nodes[last];
+        this.nodes[last] = null;
+        if (last > 0)
+            this.siftDown(0);
+        return top;
+    }
+
+    private void siftDown(int i) {
+        int key = this.keys[i];
+        FibonacciHeap.HeapNode node = this.nodes[i];
+        int half = this.count >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < this.count && this.keys[child + 1] < this.keys[child])
+                child++;
+            if (key <= this.keys[child])
+                break;
+            this.keys[i] = this.keys[child];
+            this.nodes[i] = this.nodes[child];
+            i = child;
+        }
+        this.keys[i] = key;
+        this.nodes[i] = node;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= this.keys.length)
+            return;
+        int length = Math.max(capacity, 2 * this.keys.length);
+        this.keys = Arrays.copyOf(this.keys, length);
+        this.nodes = Arrays.copyOf(this.nodes, length);
+    }
+}
@@ -0,0 +1,274 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConcurrentFibonacciHeap
+ *
+ * A thread-safe priority queue of integers built on FibonacciHeap.
+ *
+ * Inserts don't touch the main heap: each one goes to one of several insert buffers (stripes), each a small
+ * FibonacciHeap guarded by its own lock, so concurrent inserts mostly don't contend. The buffers are melded
+ * into the main heap, in O(1) each, only when an operation needs the global minimum or a node's position
+ * (poll, take, peek, decreaseKey, delete). These operations, and the consolidation done by deleteMin,
+ * run under the single main lock.
+ *
+ * poll/take follow java.util.concurrent.BlockingQueue: poll() returns null when the queue is empty,
+ * poll(timeout, unit) waits up to the timeout and take() waits until a key is available.
+ */
+public class ConcurrentFibonacciHeap
+{
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final FibonacciHeap heap = new FibonacciHeap();
+    private final Stripe[] stripes;
+    private final LongAdder count = new LongAdder(); // Striped too, so concurrent inserts don't contend on it
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * private static class Stripe
+     *
+     * An insert buffer: a heap of keys that were inserted but not melded into the main heap yet.
+     */
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final FibonacciHeap buffer = new FibonacciHeap();
+    }
+
+    public ConcurrentFibonacciHeap() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public ConcurrentFibonacciHeap(int numOfStripes) {
+        int length = Integer.highestOneBit(Math.max(numOfStripes, 1) * 2 - 1); // Rounded up to a power of 2
+        this.stripes = new Stripe[length];
+        for (int i = 0; i < length; i++)
+            this.stripes[i] = new Stripe();
+    }
+
+   /**
+    * public HeapNode insert(int key)
+    *
+    * Inserts the key into one of the insert buffers, and wakes up a waiting consumer if there is one.
+    * Starts at a random buffer and moves to the next one while buffers are locked by other threads.
+    *
+    * Returns the newly created node, which can be passed to decreaseKey and delete.
+    */
+    public FibonacciHeap.HeapNode insert(int key) {
+        this.count.increment(); // Counted before the key can be polled, so its decrement comes after
+        int mask = this.stripes.length - 1;
+        int i = ThreadLocalRandom.current().nextInt() & mask;
+        Stripe stripe = this.stripes[i];
+        for (int tries = 0; !stripe.lock.tryLock(); tries++) {
+            if (tries == mask) { // All the buffers are busy, wait for one
+                stripe.lock.lock();
+                break;
+            }
+            i = (i + 1) & mask;
+            stripe = this.stripes[i];
+        }
+        FibonacciHeap.HeapNode node;
+        try {
+            node = stripe.buffer.insert(key);
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (this.waiting.get() > 0)
+            this.signalNotEmpty();
+        return node;
+    }
+
+    /**
+     * private void signalNotEmpty()
+     *
+     * Wakes up one thread waiting in take or poll(timeout, unit)
+     *
+     */
+    private void signalNotEmpty() {
+        this.lock.lock();
+        try {
+            this.notEmpty.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * private void drainStripes()
+     *
+     * Melds every insert buffer into the main heap. Must be called while holding the main lock.
+     *
+     */
+    private void drainStripes() {
+        for (Stripe stripe : this.stripes) {
+            stripe.lock.lock();
+            try {
+                if (!stripe.buffer.isEmpty())
+                    this.heap.meld(stripe.buffer); // Leaves the buffer empty
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * private int extractMin()
+     *
+     * Deletes the minimum of the main heap and returns its key. Must be called while holding the
+     * main lock, on a non empty heap.
+     *
+     */
+    private int extractMin() {
+        int key = this.heap.findMin().getKey();
+        this.heap.deleteMin();
+        this.count.decrement();
+        return key;
+    }
+
+   /**
+    * public Integer poll()
+    *
+    * Deletes and returns the minimal key, or returns null if the queue is empty.
+    *
+    */
+    public Integer poll() {
+        this.lock.lock();
+        try {
+            this.drainStripes();
+            return this.heap.isEmpty() ? null : this.extractMin();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+   /**
+    * public Integer poll(long timeout, TimeUnit unit)
+    *
+    * Deletes and returns the minimal key, waiting up to the given timeout for a key to be inserted
+    * if the queue is empty. Returns null if the timeout elapsed.
+    *
+    */
+    public Integer poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        this.waiting.incrementAndGet(); // Raised before draining, see isMainHeapEmptyAfterDrain
+        try {
+            while (this.isMainHeapEmptyAfterDrain()) {
+                if (nanos <= 0)
+                    return null;
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+            return this.extractMin();
+        } finally {
+            this.waiting.decrementAndGet();
+            this.lock.unlock();
+        }
+    }
+
+   /**
+    * public int take()
+    *
+    * Deletes and returns the minimal key, waiting until a key is inserted if the queue is empty.
+    *
+    */
+    public int take() throws InterruptedException {
+        this.lock.lockInterruptibly();
+        this.waiting.incrementAndGet();
+        try {
+            while (this.isMainHeapEmptyAfterDrain())
+                this.notEmpty.await();
+            return this.extractMin();
+        } finally {
+            this.waiting.decrementAndGet();
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * private boolean isMainHeapEmptyAfterDrain()
+     *
+     * Drains the insert buffers and returns true if the queue is still empty. Must be called while holding
+     * the main lock, by a consumer that already raised the waiting counter: an insert that isn't seen by
+     * the drain is then guaranteed to see the counter and signal.
+     *
+     */
+    private boolean isMainHeapEmptyAfterDrain() {
+        this.drainStripes();
+        return this.heap.isEmpty();
+    }
+
+   /**
+    * public Integer peek()
+    *
+    * Returns the minimal key without deleting it, or null if the queue is empty.
+    *
+    */
+    public Integer peek() {
+        this.lock.lock();
+        try {
+            this.drainStripes();
+            return this.heap.isEmpty() ? null : this.heap.findMin().getKey();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+   /**
+    * public void decreaseKey(HeapNode x, int delta)
+    *
+    * Decreases the key of the node x by a non-negative value delta.
+    * It is assumed that x was returned by insert of this queue and wasn't deleted yet.
+    *
+    */
+    public void decreaseKey(FibonacciHeap.HeapNode x, int delta) {
+        this.lock.lock();
+        try {
+            this.drainStripes(); // x may still be in an insert buffer
+            this.heap.decreaseKey(x, delta);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+   /**
+    * public void delete(HeapNode x)
+    *
+    * Deletes the node x from the queue.
+    * It is assumed that x was returned by insert of this queue and wasn't deleted yet.
+    *
+    */
+    public void delete(FibonacciHeap.HeapNode x) {
+        this.lock.lock();
+        try {
+            this.drainStripes();
+            this.heap.delete(x);
+            this.count.decrement();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+   /**
+    * public int size()
+    *
+    * Returns the number of keys in the queue, including keys still in insert buffers. While other threads
+    * insert or delete, the count is a moment-in-time estimate (see LongAdder.sum), never negative.
+    *
+    */
+    public int size() {
+        return (int) Math.max(this.count.sum(), 0);
+    }
+
+   /**
+    * public boolean isEmpty()
+    *
+    * Returns true if and only if the queue is empty.
+    *
+    */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+}
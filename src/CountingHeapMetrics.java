@@ -0,0 +1,125 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CountingHeapMetrics
+ *
+ * HeapMetrics that counts the events of a single heap in plain long fields. It must only be used by one
+ * thread at a time; use SharedHeapMetrics for metrics shared by heaps of different threads.
+ *
+ * Cascading cuts are counted in a histogram of power of two buckets: bucket i counts the cascading cuts
+ * that made between 2^(i-1) and 2^i - 1 cuts.
+ */
+public class CountingHeapMetrics implements HeapMetrics
+{
+    static final int DEPTH_BUCKETS = 32;
+    private long links;
+    private long cuts;
+    private long marks;
+    private long cascadingCuts;
+    private final long[] cascadingCutDepths = new long[DEPTH_BUCKETS];
+    private long deleteMins;
+    private long rootListLengthTotal;
+    private long rootListLengthMax;
+    private long consolidations;
+    private long maxRank;
+
+    @Override
+    public void onLink() {
+        this.links++;
+    }
+
+    @Override
+    public void onLinks(long links) {
+        this.links += links;
+    }
+
+    @Override
+    public void onCut() {
+        this.cuts++;
+    }
+
+    @Override
+    public void onCascadingCut(int cuts) {
+        this.cascadingCuts++;
+        this.cascadingCutDepths[depthBucket(cuts)]++;
+    }
+
+    @Override
+    public void onMark() {
+        this.marks++;
+    }
+
+    @Override
+    public void onDeleteMin(int numOfTrees) {
+        this.deleteMins++;
+        this.rootListLengthTotal += numOfTrees;
+        this.rootListLengthMax = Math.max(this.rootListLengthMax, numOfTrees);
+    }
+
+    @Override
+    public void onConsolidation(int maxRank) {
+        this.consolidations++;
+        this.maxRank = Math.max(this.maxRank, maxRank);
+    }
+
+    public long getLinks() {
+        return this.links;
+    }
+
+    public long getCuts() {
+        return this.cuts;
+    }
+
+    public long getMarks() {
+        return this.marks;
+    }
+
+    public long getConsolidations() {
+        return this.consolidations;
+    }
+
+    public long getMaxRank() {
+        return this.maxRank;
+    }
+
+    @Override
+    public Map<String, Long> snapshot() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("links", this.links);
+        values.put("cuts", this.cuts);
+        values.put("marks", this.marks);
+        values.put("consolidations", this.consolidations);
+        values.put("maxRank", this.maxRank);
+        values.put("deleteMins", this.deleteMins);
+        values.put("rootListLengthTotal", this.rootListLengthTotal);
+        values.put("rootListLengthMax", this.rootListLengthMax);
+        values.put("cascadingCuts", this.cascadingCuts);
+        for (int i = 1; i < DEPTH_BUCKETS; i++)
+            if (this.cascadingCutDepths[i] != 0)
+                values.put(depthBucketName(i), this.cascadingCutDepths[i]);
+        return values;
+    }
+
+    /**
+     * static int depthBucket(int cuts)
+     *
+     * Returns the histogram bucket of a cascading cut that made the given number of cuts (at least 1)
+     *
+     */
+    static int depthBucket(int cuts) {
+        return 32 - Integer.numberOfLeadingZeros(cuts);
+    }
+
+    /**
+     * static String depthBucketName(int bucket)
+     *
+     * Returns the snapshot name of a histogram bucket, e.g. "cascadingCutDepth.4-7"
+     *
+     */
+    static String depthBucketName(int bucket) {
+        long from = 1L << (bucket - 1);
+        long to = (1L << bucket) - 1;
+        return "cascadingCutDepth." + (from == to ? Long.toString(from) : from + "-" + to);
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * CsrGraph
+ *
+ * An immutable directed graph with non-negative int edge weights, in compressed sparse row form: the edges
+ * leaving vertex v are the indices offsets[v] .. offsets[v+1]-1 of the targets and weights arrays. Vertices
+ * are 0..numOfVertices-1. An undirected graph stores every edge in both directions.
+ *
+ * Iterating the edges of a vertex reads two contiguous array ranges, instead of chasing per-edge objects.
+ */
+public class CsrGraph
+{
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+
+    private CsrGraph(int[] offsets, int[] targets, int[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * public static CsrGraph fromEdges(int numOfVertices, int[] from, int[] to, int[] weight)
+     *
+     * Builds the graph of numOfVertices vertices with the directed edges (from[i], to[i]) of weight weight[i],
+     * with a counting sort by source vertex. Throws IllegalArgumentException if the arrays differ in length,
+     * a vertex is out of range or a weight is negative.
+     *
+     */
+    public static CsrGraph fromEdges(int numOfVertices, int[] from, int[] to, int[] weight) {
+        return build(numOfVertices, from, to, weight, false);
+    }
+
+    /**
+     * public static CsrGraph fromUndirectedEdges(int numOfVertices, int[] from, int[] to, int[] weight)
+     *
+     * Like fromEdges, but every edge is added in both directions.
+     *
+     */
+    public static CsrGraph fromUndirectedEdges(int numOfVertices, int[] from, int[] to, int[] weight) {
+        return build(numOfVertices, from, to, weight, true);
+    }
+
+    private static CsrGraph build(int numOfVertices, int[] from, int[] to, int[] weight, boolean undirected) {
+        if (numOfVertices < 0)
+            throw new IllegalArgumentException("Negative number of vertices: " + numOfVertices);
+        if (from.length != to.length || from.length != weight.length)
+            throw new IllegalArgumentException("Edge arrays differ in length");
+        int[] offsets = new int[numOfVertices + 1];
+        for (int i = 0; i < from.length; i++) {
+            checkVertex(from[i], numOfVertices);
+            checkVertex(to[i], numOfVertices);
+            if (weight[i] < 0)
+                throw new IllegalArgumentException("Negative weight: " + weight[i]);
+            offsets[from[i] + 1]++;
+            if (undirected)
+                offsets[to[i] + 1]++;
+        }
+        for (int v = 0; v < numOfVertices; v++)
+            offsets[v + 1] += offsets[v];
+        int[] next = Arrays.copyOf(offsets, numOfVertices);
+        int[] targets = new int[offsets[numOfVertices]];
+        int[] weights = new int[targets.length];
+        for (int i = 0; i < from.length; i++) {
+            int e = next[from[i]]++;
+            targets[e] = to[i];
+            weights[e] = weight[i];
+            if (undirected) {
+                e = next[to[i]]++;
+                targets[e] = from[i];
+                weights[e] = weight[i];
+            }
+        }
+        return new CsrGraph(offsets, targets, weights);
+    }
+
+    private static void checkVertex(int v, int numOfVertices) {
+        if (v < 0 || v >= numOfVertices)
+            throw new IllegalArgumentException("Vertex out of range: " + v);
+    }
+
+    /**
+     * public static CsrGraph roadLikeGrid(int width, int height, int maxWeight, Random rand)
+     *
+     * Returns a synthetic road-like undirected graph: a width x height grid (vertex x + y * width), where each
+     * grid edge exists with probability 0.9 and has a random weight between (maxWeight + 1) / 2 and maxWeight,
+     * plus a few long "highway" edges between random vertices, weighted by their Manhattan length times
+     * (maxWeight + 1) / 2. See manhattanHeuristic for a consistent A* heuristic on it.
+     *
+     */
+    public static CsrGraph roadLikeGrid(int width, int height, int maxWeight, Random rand) {
+        int n = width * height;
+        int minWeight = (maxWeight + 1) / 2;
+        int capacity = 2 * n + n / 64;
+        int[] from = new int[capacity];
+        int[] to = new int[capacity];
+        int[] weight = new int[capacity];
+        int m = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = x + y * width;
+                if (x + 1 < width && rand.nextInt(10) != 0) {
+                    from[m] = v;
+                    to[m] = v + 1;
+                    weight[m++] = minWeight + rand.nextInt(maxWeight - minWeight + 1);
+                }
+                if (y + 1 < height && rand.nextInt(10) != 0) {
+                    from[m] = v;
+                    to[m] = v + width;
+                    weight[m++] = minWeight + rand.nextInt(maxWeight - minWeight + 1);
+                }
+            }
+        }
+        for (int i = 0; i < n / 64; i++) {
+            int u = rand.nextInt(n);
+            int v = rand.nextInt(n);
+            from[m] = u;
+            to[m] = v;
+            weight[m++] = Math.max(1, manhattan(u, v, width)) * minWeight;
+        }
+        return fromUndirectedEdges(n, Arrays.copyOf(from, m), Arrays.copyOf(to, m),
+                Arrays.copyOf(weight, m));
+    }
+
+    /**
+     * public static int manhattan(int u, int v, int width)
+     *
+     * Returns the Manhattan distance between the vertices u and v of a grid of the given width.
+     *
+     */
+    public static int manhattan(int u, int v, int width) {
+        return Math.abs(u % width - v % width) + Math.abs(u / width - v / width);
+    }
+
+    /**
+     * public static IntUnaryOperator manhattanHeuristic(int target, int width, int maxWeight)
+     *
+     * Returns the A* heuristic for target on a roadLikeGrid of the given width and maxWeight: the Manhattan
+     * distance to target times the lightest weight per grid step, which is consistent.
+     *
+     */
+    public static IntUnaryOperator manhattanHeuristic(int target, int width, int maxWeight) {
+        int minWeight = (maxWeight + 1) / 2;
+        return v -> manhattan(v, target, width) * minWeight;
+    }
+
+    /**
+     * public int numOfVertices()
+     *
+     * Returns the number of vertices of the graph.
+     *
+     */
+    public int numOfVertices() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * public int numOfEdges()
+     *
+     * Returns the number of (directed) edges of the graph.
+     *
+     */
+    public int numOfEdges() {
+        return this.targets.length;
+    }
+
+    /**
+     * public int edgesBegin(int v)
+     *
+     * Returns the index of the first edge leaving v.
+     *
+     */
+    public int edgesBegin(int v) {
+        return this.offsets[v];
+    }
+
+    /**
+     * public int edgesEnd(int v)
+     *
+     * Returns the index after the last edge leaving v.
+     *
+     */
+    public int edgesEnd(int v) {
+        return this.offsets[v + 1];
+    }
+
+    /**
+     * public int target(int e)
+     *
+     * Returns the vertex edge e points to.
+     *
+     */
+    public int target(int e) {
+        return this.targets[e];
+    }
+
+    /**
+     * public int weight(int e)
+     *
+     * Returns the weight of edge e.
+     *
+     */
+    public int weight(int e) {
+        return this.weights[e];
+    }
+}
@@ -0,0 +1,184 @@
+import java.util.Arrays;
+
+/**
+ * DaryHeap
+ *
+ * An implicit d-ary min-heap of integers: the tree is laid out in an array, and the children of position i
+ * are d*i+1 .. d*i+d. Keys are kept in an int array next to the node array, so sifting compares keys
+ * without dereferencing nodes; every node remembers its position, so decreaseKey and delete are
+ * O(log_d n). A larger d makes the tree shallower (cheaper insert and decreaseKey) and deleteMin compare
+ * more children, 4 is usually a good trade-off.
+ *
+ * meld copies heap2's nodes into this heap's arrays and re-heapifies, in O(n + m).
+ */
+public class DaryHeap implements PriorityHeap<DaryHeap.Node, DaryHeap>
+{
+    private final int arity;
+    private int[] keys;
+    private Node[] nodes;
+    private int size;
+
+    public DaryHeap() {
+        this(4);
+    }
+
+    /**
+     * public DaryHeap(int arity)
+     *
+     * Creates an empty heap whose nodes have up to arity children (at least 2).
+     *
+     */
+    public DaryHeap(int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("Arity below 2: " + arity);
+        this.arity = arity;
+        this.keys = new int[16];
+        this.nodes = new Node[16];
+    }
+
+    @Override
+    public Node insert(int key) {
+        if (this.size == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+            this.nodes = Arrays.copyOf(this.nodes, 2 * this.size);
+        }
+        Node node = new Node();
+        this.siftUp(this.size++, key, node);
+        return node;
+    }
+
+    @Override
+    public Node findMin() {
+        return (this.size == 0) ? null : this.nodes[0];
+    }
+
+    @Override
+    public int getKey(Node node) {
+        return this.keys[node.index];
+    }
+
+    @Override
+    public void deleteMin() {
+        this.removeAt(0);
+    }
+
+    @Override
+    public void decreaseKey(Node x, int delta) {
+        this.siftUp(x.index, this.keys[x.index] - delta, x);
+    }
+
+    @Override
+    public void delete(Node x) {
+        this.removeAt(x.index);
+    }
+
+    @Override
+    public void meld(DaryHeap heap2) {
+        if (heap2 == this || heap2.size == 0)
+            return;
+        int newSize = this.size + heap2.size;
+        if (newSize > this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, newSize);
+            this.nodes = Arrays.copyOf(this.nodes, newSize);
+        }
+        System.arraycopy(heap2.keys, 0, this.keys, this.size, heap2.size);
+        System.arraycopy(heap2.nodes, 0, this.nodes, this.size, heap2.size);
+        int oldSize = this.size;
+        this.size = newSize;
+        if (heap2.size <= oldSize / this.arity) { // Few new nodes: sift each one up
+            for (int i = oldSize; i < newSize; i++)
+                this.siftUp(i, this.keys[i], this.nodes[i]);
+        } else {
+            for (int i = (newSize - 2) / this.arity; i >= 0; i--) // Floyd's bottom-up heapify
+                this.siftDown(i, this.keys[i], this.nodes[i]);
+            for (int i = 0; i < newSize; i++)
+                this.nodes[i].index = i;
+        }
+        Arrays.fill(heap2.nodes, 0, heap2.size, null);
+        heap2.size = 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * private void removeAt(int i)
+     *
+     * Removes the node at position i, and moves the last node into its place
+     *
+     */
+    private void removeAt(int i) {
+        this.nodes[i].index = -1;
+        int last = --this.size;
+        int lastKey = this.keys[last];
+        Node lastNode = this.nodes[last];
+        this.nodes[last] = null;
+        if (i == last)
+            return;
+        if (i > 0 && lastKey < this.keys[(i - 1) / this.arity])
+            this.siftUp(i, lastKey, lastNode);
+        else
+            this.siftDown(i, lastKey, lastNode);
+    }
+
+    /**
+     * private void siftUp(int i, int key, Node node)
+     *
+     * Places node with the given key at position i or above, moving the larger ancestors down
+     *
+     */
+    private void siftUp(int i, int key, Node node) {
+        while (i > 0) {
+            int parent = (i - 1) / this.arity;
+            if (this.keys[parent] <= key)
+                break;
+            this.keys[i] = this.keys[parent];
+            this.nodes[i] = this.nodes[parent];
+            this.nodes[i].index = i;
+            i = parent;
+        }
+        this.keys[i] = key;
+        this.nodes[i] = node;
+        node.index = i;
+    }
+
+    /**
+     * private void siftDown(int i, int key, Node node)
+     *
+     * Places node with the given key at position i or below, moving the smallest children up
+     *
+     */
+    private void siftDown(int i, int key, Node node) {
+        while (true) {
+            int firstChild = this.arity * i + 1;
+            if (firstChild >= this.size)
+                break;
+            int best = firstChild;
+            int end = Math.min(firstChild + this.arity, this.size);
+            for (int child = firstChild + 1; child < end; child++) {
+                if (this.keys[child] < this.keys[best])
+                    best = child;
+            }
+            if (key <= this.keys[best])
+                break;
+            this.keys[i] = this.keys[best];
+            this.nodes[i] = this.nodes[best];
+            this.nodes[i].index = i;
+            i = best;
+        }
+        this.keys[i] = key;
+        this.nodes[i] = node;
+        node.index = i;
+    }
+
+    /**
+    * public static class Node
+    *
+    * A handle to an element of a DaryHeap: its current position in the heap's arrays (-1 once deleted).
+    */
+    public static class Node {
+        private int index;
+    }
+}
@@ -1,12 +1,26 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * FibonacciHeap
  *
  * An implementation of a Fibonacci Heap over integers.
  */
-public class FibonacciHeap
+public class FibonacciHeap implements PriorityHeap<FibonacciHeap.HeapNode, FibonacciHeap>
 {
     public static final double PHI = (1 + Math.sqrt(5)) / 2;
+    private static final int[] RANK_BOUNDS = buildRankBounds();
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+    public static final double DEFAULT_PURGE_THRESHOLD = 0.5;
+    private static final int PARALLEL_LEAF_SIZE = 1 << 13; // Roots (or keys) a fork/join task links by itself
     public static int numOfLinks;
     public static int numOfCuts;
     private int numOfTrees;
@@ -14,9 +28,33 @@ public class FibonacciHeap
     private HeapNode first;
     private int size;
     private int nonMarked;
+    private HeapNode[] buckets = new HeapNode[0];
+    private int[] rankCounters = new int[0];
+    private final HeapMetrics metrics;
+    private HeapNode pendingFirst; // Subtrees cut by decreaseKeys, not spliced into the root list yet
+    private HeapNode pendingLast;
+    private int consolidationBudget; // 0: deleteMin consolidates the whole root list
+    private HeapNode[] rootsByRank = new HeapNode[0]; // Incremental mode: the consolidated roots, by rank
+    private HeapNode consolidatedFirst; // Incremental mode: first consolidated root, the roots before it are the backlog
+    private HeapNode carry; // Incremental mode: a consolidated root that may still have to be linked
+    private ForkJoinPool pool; // null: consolidation runs in the calling thread
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private Owner owner = new Owner(); // The tag of the nodes of the heap, see Owner
+    private int numOfTombstones; // Cancelled nodes still linked in the trees, see cancel
+    private double purgeThreshold = DEFAULT_PURGE_THRESHOLD;
 
     public FibonacciHeap() {
+        this(HeapMetrics.NOOP);
+    }
 
+    /**
+     * public FibonacciHeap(HeapMetrics metrics)
+     *
+     * Creates an empty heap that reports its operations (links, cuts, consolidations...) to metrics.
+     *
+     */
+    public FibonacciHeap(HeapMetrics metrics) {
+        this.metrics = metrics;
     }
 
    /**
@@ -29,21 +67,20 @@ public class FibonacciHeap
     	return first == null;
     }
 
-    /**
-     * private HeapNode insert(int key, HeapNode matchingNode)
-     *
-     * Creates a node (of type HeapNode) which contains the given key, and inserts it into the heap.
-     * The added key is assumed not to already belong to the heap.
-     *
-     * Returns the newly created node.
-     */
-    private HeapNode insert(int key, HeapNode matchingNode) {
+   /**
+    * public HeapNode insert(int key)
+    *
+    * Creates a node (of type HeapNode) which contains the given key, and inserts it into the heap.
+    * The added key is assumed not to already belong to the heap.  
+    * 
+    * Returns the newly created node.
+    */
+    public HeapNode insert(int key) {
         this.size++;
         this.nonMarked++;
         this.numOfTrees++;
         HeapNode newNode = new HeapNode(key);
-        if (matchingNode != null) // For kMin method: adding pointer to H heap
-            newNode.setMatchingNode(matchingNode);
+        newNode.owner = this.owner;
         if (this.size == 1) {  // Insertion to an empty heap
             this.setFirst(newNode);
             this.setMin(newNode);
@@ -54,20 +91,132 @@ public class FibonacciHeap
         this.setFirst(newNode);
         if (newNode.getKey() < this.getMin().getKey()) // Update min if necessary
             this.setMin(newNode);
+        if (this.consolidationBudget > 0)
+            this.consolidateSome(this.consolidationBudget);
         return newNode;
     }
 
+   /**
+    * public void insertAll(int[] keys)
+    *
+    * Inserts all the given keys into the heap, leaving the heap exactly as a loop of insert calls would.
+    *
+    */
+    public void insertAll(int[] keys) {
+        this.insertAll(keys, null, false);
+    }
 
    /**
-    * public HeapNode insert(int key)
+    * public void insertAll(IntStream keys)
+    *
+    * Inserts all the keys of the stream into the heap, in encounter order.
     *
-    * Creates a node (of type HeapNode) which contains the given key, and inserts it into the heap.
-    * The added key is assumed not to already belong to the heap.  
-    * 
-    * Returns the newly created node.
     */
-    public HeapNode insert(int key) {
-        return this.insert(key, null);
+    public void insertAll(IntStream keys) {
+        this.insertAll(keys.toArray(), null, false);
+    }
+
+   /**
+    * public void insertAll(int[] keys, HeapNode[] nodes, boolean consolidate)
+    *
+    * Inserts all the given keys into the heap. The new nodes are chained into a root list and the
+    * minimum among them is found in a single pass, and the chain is spliced in front of the heap at once.
+    * If nodes is not null, nodes[i] is set to the node created for keys[i].
+    * If consolidate is true, the heap is consolidated right away, so the next deleteMin doesn't have
+    * to link all the new trees.
+    *
+    */
+    public void insertAll(int[] keys, HeapNode[] nodes, boolean consolidate) {
+        if (keys.length == 0)
+            return;
+        HeapNode chainLast = new HeapNode(keys[0]); // Inserted first, so it ends up last in the chain
+        chainLast.owner = this.owner;
+        HeapNode chainFirst = chainLast;
+        HeapNode chainMin = chainLast;
+        if (nodes != null)
+            nodes[0] = chainLast;
+        for (int i = 1; i < keys.length; i++) {
+            HeapNode newNode = new HeapNode(keys[i]);
+            newNode.owner = this.owner;
+            newNode.updateNextNode(chainFirst);
+            chainFirst = newNode;
+            if (newNode.getKey() < chainMin.getKey())
+                chainMin = newNode;
+            if (nodes != null)
+                nodes[i] = newNode;
+        }
+        this.size += keys.length;
+        this.nonMarked += keys.length;
+        this.numOfTrees += keys.length;
+        if (this.isEmpty()) {
+            chainLast.updateNextNode(chainFirst);
+            this.setMin(chainMin);
+        } else {
+            this.getLast().updateNextNode(chainFirst);
+            chainLast.updateNextNode(this.getFirst());
+            if (chainMin.getKey() < this.getMin().getKey())
+                this.setMin(chainMin);
+        }
+        this.setFirst(chainFirst);
+        if (this.consolidationBudget > 0) {
+            if (consolidate)
+                this.compact();
+            else
+                this.consolidateSome(this.consolidationBudget);
+        } else if (consolidate && this.size > 1)
+            this.consolidating();
+    }
+
+   /**
+    * public void insertAllLinked(int[] keys, HeapNode[] nodes)
+    *
+    * Inserts all the given keys as already linked binomial trees, one of rank k for every bit k set in
+    * keys.length, each built from a contiguous range of keys (so the heap gets at most 32 new trees
+    * instead of keys.length single nodes). The trees are built in the pool of setParallelConsolidation
+    * when there is one and keys.length reaches its threshold, and in the calling thread otherwise.
+    * If nodes is not null, nodes[i] is set to the node created for keys[i].
+    *
+    */
+    public void insertAllLinked(int[] keys, HeapNode[] nodes) {
+        int n = keys.length;
+        if (n == 0)
+            return;
+        HeapNode chainFirst = null;
+        HeapNode chainMin = null;
+        boolean parallel = (this.pool != null && n >= this.parallelThreshold);
+        int start = 0;
+        for (int rank = 31; rank >= 0; rank--) { // Largest tree first, at the front of the chain
+            if ((n & (1 << rank)) == 0)
+                continue;
+            BuildTask task = new BuildTask(keys, nodes, this.owner, start, rank);
+            HeapNode root = parallel ? this.pool.invoke(task) : task.build(start, rank);
+            start += 1 << rank;
+            if (chainFirst == null) {
+                chainFirst = root;
+                chainMin = root;
+            } else {
+                chainFirst.getPrev().updateNextNode(root);
+                root.updateNextNode(chainFirst);
+                if (root.getKey() < chainMin.getKey())
+                    chainMin = root;
+            }
+        }
+        this.countLinks(n - Integer.bitCount(n));
+        this.size += n;
+        this.nonMarked += n;
+        this.numOfTrees += Integer.bitCount(n);
+        if (this.isEmpty())
+            this.setMin(chainMin);
+        else {
+            HeapNode chainLast = chainFirst.getPrev();
+            this.getLast().updateNextNode(chainFirst);
+            chainLast.updateNextNode(this.getFirst());
+            if (chainMin.getKey() < this.getMin().getKey())
+                this.setMin(chainMin);
+        }
+        this.setFirst(chainFirst);
+        if (this.consolidationBudget > 0)
+            this.consolidateSome(this.consolidationBudget);
     }
 
    /**
@@ -77,6 +226,16 @@ public class FibonacciHeap
     *
     */
     public void deleteMin() {
+        this.metrics.onDeleteMin(this.numOfTrees);
+        this.getMin().owner = null; // Handles to the deleted node are rejected from now on
+        if (this.numOfTombstones > 0 && this.size - this.numOfTombstones == 1) { // The cancelled nodes go with the last live one
+            this.detachTrees();
+            return;
+        }
+        if (this.consolidationBudget > 0) {
+            this.deleteMinIncrementally();
+            return;
+        }
         this.size--;
         this.nonMarked--;
         if (size == 0) { // Deletion from heap with 1 element
@@ -142,71 +301,502 @@ public class FibonacciHeap
     /**
      * private void consolidating()
      *
-     * Perform consolidation/successive linking process on the heap
+     * Perform consolidation/successive linking process on the heap, after dropping the cancelled roots.
+     * The heap's buckets array is reused between calls: it is grown only when the rank bound grows,
+     * and makeHeapFromTreesArray clears the cells it reads, up to the largest rank seen.
      *
      */
     private void consolidating() {
+        if (this.numOfTombstones > 0)
+            this.dropCancelledRoots();
+        if (this.pool != null && this.numOfTrees >= this.parallelThreshold) {
+            this.consolidatingInParallel();
+            return;
+        }
         HeapNode node = this.getFirst();
-        int arrSize = (int)Math.ceil(Math.log(this.size) / Math.log(PHI));
-        HeapNode[] bucketsList = new HeapNode[arrSize];
+        int arrSize = bucketsCount(this.size);
+        if (this.buckets.length < arrSize)
+            this.buckets = new HeapNode[arrSize];
+        HeapNode[] bucketsList = this.buckets;
+        int maxRank = 0;
         do {
             HeapNode nodeNext = node.getNext();
             int nodeRank = node.getRank();
-            if (bucketsList[nodeRank] == null) { // Case 1: no link needed
-                bucketsList[nodeRank] = node;
-                node = nodeNext;
-                continue;
-            }
-            while (bucketsList[nodeRank] != null) { // Case 2: link(s) needed
-                HeapNode new_node = FibonacciHeap.linkTwoTrees(node, bucketsList[nodeRank]);
+            while (bucketsList[nodeRank] != null) { // Link as long as a tree of the same rank exists
+                HeapNode new_node = this.linkTwoTrees(node, bucketsList[nodeRank]);
                 bucketsList[nodeRank] = null;
                 nodeRank++;
                 node = new_node;
             }
             bucketsList[nodeRank] = node; // Inserting linked node to an empty cell
+            if (nodeRank > maxRank)
+                maxRank = nodeRank;
             node = nodeNext;
         } while (node != this.getFirst());
-        this.makeHeapFromTreesArray(bucketsList);
+        this.makeHeapFromTreesArray(bucketsList, maxRank + 1);
+        this.metrics.onConsolidation(maxRank);
     }
 
     /**
-     * private void makeHeapFromTreesArray(HeapNode[] treesArray)
+     * private void makeHeapFromTreesArray(HeapNode[] treesArray, int length)
      *
-     * Connect nodes in treesArray to form a heap
+     * Connect nodes in the first length cells of treesArray to form a heap, and clear these cells
      *
      */
-    private void makeHeapFromTreesArray(HeapNode[] treesArray) {
-        int i = 0;
+    private void makeHeapFromTreesArray(HeapNode[] treesArray, int length) {
         int newNumOfTrees = 0;
-        for (; i < treesArray.length; i++) {  // Find first node
-            HeapNode node = treesArray[i];
-            if (node != null) {
-                this.setFirst(node);
-                this.setMin(node);
-                if (node.isMark())
-                    this.changeNodeMark(node);
-                i++;
-                newNumOfTrees++;
-                break;
-            }
-        }
-        HeapNode node = this.getFirst();
-        for (; i < treesArray.length; i++) {  // Update next for all trees roots
+        HeapNode node = null;
+        for (int i = 0; i < length; i++) {  // Update next for all trees roots
             HeapNode currNode = treesArray[i];
-            if (currNode != null) {
-                if (currNode.isMark())
-                    this.changeNodeMark(currNode);
+            if (currNode == null)
+                continue;
+            treesArray[i] = null;
+            if (currNode.isMark())
+                this.changeNodeMark(currNode);
+            if (node == null) { // First tree
+                this.setFirst(currNode);
+                this.setMin(currNode);
+            } else {
                 if (currNode.getKey() < this.getMin().getKey())
                     this.setMin(currNode);
                 node.updateNextNode(currNode);
-                node = currNode;
-                newNumOfTrees++;
             }
+            node = currNode;
+            newNumOfTrees++;
         }
         node.updateNextNode(this.getFirst());  // Update first tree's root prev
         this.numOfTrees = newNumOfTrees;
     }
 
+   /**
+    * public void setParallelConsolidation(ForkJoinPool pool, int threshold)
+    *
+    * Makes consolidation run in pool when the root list has at least threshold trees (e.g. the first
+    * deleteMin after a large insertAll or meld, or compact()): the root list is split into ranges, the trees
+    * of each range are linked by rank in a fork/join task, and the rank buckets of the ranges are merged
+    * like binary numbers. Smaller root lists are consolidated in the calling thread, as before.
+    * A null pool turns parallel consolidation off. The heap is still not thread-safe: only the calling
+    * operation uses it while the tasks run.
+    *
+    */
+    public void setParallelConsolidation(ForkJoinPool pool, int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("Parallel threshold must be positive: " + threshold);
+        this.pool = pool;
+        this.parallelThreshold = threshold;
+    }
+
+   /**
+    * public void setParallelConsolidation(ForkJoinPool pool)
+    *
+    * Same as setParallelConsolidation(pool, DEFAULT_PARALLEL_THRESHOLD).
+    *
+    */
+    public void setParallelConsolidation(ForkJoinPool pool) {
+        this.setParallelConsolidation(pool, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * private void consolidatingInParallel()
+     *
+     * consolidating() for large root lists: the roots are copied to an array, which ConsolidationTask
+     * links in pool, and the heap is rebuilt from the merged buckets. The links are counted afterwards,
+     * in this thread.
+     *
+     */
+    private void consolidatingInParallel() {
+        int bucketsLength = bucketsCount(this.size);
+        HeapNode[] roots = new HeapNode[this.numOfTrees + bucketsLength]; // numOfTrees may lag behind a deleteMin by its rank
+        int numOfRoots = 0;
+        HeapNode node = this.getFirst();
+        do {
+            if (numOfRoots == roots.length)
+                roots = Arrays.copyOf(roots, 2 * roots.length);
+            roots[numOfRoots++] = node;
+            node = node.getNext();
+        } while (node != this.getFirst());
+        ConsolidationTask task = new ConsolidationTask(roots, 0, numOfRoots, bucketsLength);
+        HeapNode[] bucketsList = this.pool.invoke(task);
+        this.countLinks(task.links);
+        int maxRank = bucketsLength - 1;
+        while (bucketsList[maxRank] == null)
+            maxRank--;
+        this.makeHeapFromTreesArray(bucketsList, maxRank + 1);
+        this.metrics.onConsolidation(maxRank);
+    }
+
+    /**
+     * private void countLinks(long links)
+     *
+     * Adds links made by link() to numOfLinks and to the metrics
+     *
+     */
+    private void countLinks(long links) {
+        numOfLinks += (int) links;
+        this.metrics.onLinks(links);
+    }
+
+   /**
+    * public void setConsolidationBudget(int budget)
+    *
+    * Switches the heap to incremental consolidation if budget > 0: every insert, deleteMin, decreaseKey,
+    * delete and meld does at most budget units of consolidation work (a unit moves a root from the backlog of
+    * unconsolidated roots to the consolidated ones, or links two trees), plus 2 units for every root it adds
+    * to the backlog itself (the children of the deleted min, the cut subtrees), so no single operation links
+    * the whole root list.
+    * findMin stays exact: the min is maintained as usual, and deleteMin scans the roots left, which are the
+    * backlog plus at most one consolidated tree per rank. With a budget of at least 2 the backlog is absorbed
+    * as fast as inserts add to it; the trees of a melded heap are absorbed by the following operations.
+    * compact() finishes the pending work.
+    * A budget of 0 (the default) goes back to consolidating the whole root list in deleteMin.
+    *
+    */
+    public void setConsolidationBudget(int budget) {
+        if (budget < 0)
+            throw new IllegalArgumentException("Negative consolidation budget: " + budget);
+        this.consolidationBudget = budget;
+        this.resetIncrementalState(); // All the roots are the backlog
+    }
+
+   /**
+    * public int getConsolidationBudget()
+    *
+    * Returns the consolidation budget per operation, 0 if deleteMin consolidates fully.
+    *
+    */
+    public int getConsolidationBudget() {
+        return this.consolidationBudget;
+    }
+
+   /**
+    * public void compact()
+    *
+    * Consolidates the whole root list now, leaving at most one tree per rank, so that the following
+    * operations have no pending consolidation work.
+    *
+    */
+    public void compact() {
+        if (this.isEmpty())
+            return;
+        if (this.size > 1)
+            this.consolidating();
+        if (this.consolidationBudget > 0) { // Index the consolidated trees
+            this.resetIncrementalState();
+            this.ensureRootsByRank();
+            HeapNode root = this.getFirst();
+            do {
+                this.rootsByRank[root.getRank()] = root;
+                root = root.getNext();
+            } while (root != this.getFirst());
+            this.consolidatedFirst = this.getFirst();
+        }
+    }
+
+   /**
+    * public boolean compact(int budget)
+    *
+    * Does at most budget units of the pending consolidation work of incremental mode, e.g. when the caller
+    * is idle. Returns true if and only if no work is left. Without a consolidation budget, returns true if
+    * the roots have distinct ranks.
+    *
+    */
+    public boolean compact(int budget) {
+        if (this.consolidationBudget == 0) {
+            int[] counters = this.countersRep();
+            for (int count : counters) {
+                if (count > 1)
+                    return false;
+            }
+            return true;
+        }
+        return this.consolidateSome(budget);
+    }
+
+    /**
+     * private boolean consolidateSome(int budget)
+     *
+     * Does at most budget units of consolidation work. A unit places the carry in rootsByRank or links it
+     * with the tree of its rank, after taking the last root of the backlog as the new carry if there is no
+     * carry. A cancelled carry, or a cancelled tree of its rank, is dropped instead of linked, and its
+     * children join the backlog. Returns true if and only if no work is left.
+     *
+     */
+    private boolean consolidateSome(int budget) {
+        if (this.isEmpty())
+            return true;
+        this.ensureRootsByRank();
+        for (int work = 0; work < budget; work++) {
+            if (this.carry == null) { // Take the backlog root next to the boundary
+                if (this.consolidatedFirst == this.getFirst())
+                    return true;
+                this.consolidatedFirst = (this.consolidatedFirst == null) ? this.getLast()
+                        : this.consolidatedFirst.getPrev();
+                this.carry = this.consolidatedFirst;
+            }
+            if (this.carry.cancelled) {
+                this.dropCancelledRoot(this.carry);
+                continue;
+            }
+            int rank = this.carry.getRank();
+            HeapNode other = this.rootsByRank[rank];
+            if (other != null && other.cancelled) {
+                this.dropCancelledRoot(other);
+                other = null;
+            }
+            if (other == null) {
+                this.rootsByRank[rank] = this.carry;
+                this.carry = null;
+            } else {
+                this.rootsByRank[rank] = null;
+                this.carry = this.linkRoots(this.carry, other);
+            }
+        }
+        return this.carry == null && this.consolidatedFirst == this.getFirst();
+    }
+
+    /**
+     * private HeapNode linkRoots(HeapNode a, HeapNode b)
+     *
+     * Links two consolidated roots of the same rank: the one with the larger key is taken out of the root
+     * list and hung under the other. Returns the root of the new tree.
+     *
+     */
+    private HeapNode linkRoots(HeapNode a, HeapNode b) {
+        HeapNode loser = (a.getKey() > b.getKey()) ? a : b;
+        this.removeRoot(loser);
+        this.numOfTrees--;
+        HeapNode root = this.linkTwoTrees(a, b);
+        if (loser == this.getMin()) // Equal keys: the min stays a root
+            this.setMin(root);
+        return root;
+    }
+
+    /**
+     * private void removeRoot(HeapNode root)
+     *
+     * Takes root out of the root list, keeping first and consolidatedFirst on roots that remain
+     *
+     */
+    private void removeRoot(HeapNode root) {
+        HeapNode next = root.getNext();
+        boolean alone = (next == root);
+        if (root == this.consolidatedFirst) // Either the consolidated roots end with root, or next is one of them
+            this.consolidatedFirst = (alone || (next == this.getFirst() && root != this.getFirst())) ? null : next;
+        if (root == this.getFirst())
+            this.setFirst(alone ? null : next);
+        if (!alone)
+            root.getPrev().updateNextNode(next);
+        root.updateNextNode(root);
+    }
+
+    /**
+     * private void deleteMinIncrementally()
+     *
+     * deleteMin of incremental mode: the min leaves the root list, its children join the backlog, at most
+     * consolidationBudget units of consolidation are done, and the new min is found among the roots left
+     *
+     */
+    private void deleteMinIncrementally() {
+        HeapNode deleted = this.getMin();
+        this.promoteChildren(deleted);
+        if (this.isEmpty()) {
+            this.setMin(null);
+            this.resetIncrementalState();
+            return;
+        }
+        if (this.numOfTombstones > 0) // The new min may be below a cancelled root
+            this.dropCancelledRoots();
+        this.consolidateSome(this.consolidationBudget + 2 * deleted.getRank());
+        HeapNode newMin = this.getFirst();
+        for (HeapNode root = newMin.getNext(); root != this.getFirst(); root = root.getNext()) {
+            if (root.getKey() < newMin.getKey())
+                newMin = root;
+        }
+        this.setMin(newMin);
+    }
+
+    /**
+     * private void promoteChildren(HeapNode root)
+     *
+     * Takes root out of the heap in incremental mode: root leaves the root list (and rootsByRank, or the
+     * carry), and its children join the backlog, in front of the root list
+     *
+     */
+    private void promoteChildren(HeapNode root) {
+        if (this.rootsByRank.length > root.getRank() && this.rootsByRank[root.getRank()] == root)
+            this.rootsByRank[root.getRank()] = null;
+        if (this.carry == root)
+            this.carry = null;
+        this.removeRoot(root);
+        this.size--;
+        if (!root.isMark())
+            this.nonMarked--;
+        this.numOfTrees--;
+        HeapNode child = root.getChild();
+        if (child != null) {
+            this.cutNodesChildrenFromParent(root);
+            this.numOfTrees += root.getRank();
+            if (this.isEmpty())
+                this.setFirst(child);
+            else {
+                HeapNode lastChild = child.getPrev();
+                this.getLast().updateNextNode(child);
+                lastChild.updateNextNode(this.getFirst());
+                this.setFirst(child);
+            }
+            root.setChild(null);
+        }
+    }
+
+    /**
+     * private void dropCancelledRoot(HeapNode root)
+     *
+     * Drops a cancelled root that surfaced during incremental consolidation, its children joining the backlog
+     *
+     */
+    private void dropCancelledRoot(HeapNode root) {
+        this.promoteChildren(root);
+        this.numOfTombstones--;
+    }
+
+    /**
+     * private void dropCancelledRoots()
+     *
+     * Drops every cancelled root, and the cancelled roots that their children then make, until all the
+     * roots are live. The root list is rebuilt in one pass that keeps the order of the live roots, and
+     * numOfTrees is recounted. If a root was dropped, the roots of incremental mode all become the backlog.
+     *
+     */
+    private void dropCancelledRoots() {
+        HeapNode first = this.getFirst();
+        HeapNode liveFirst = null;
+        int roots = 0;
+        ArrayDeque<HeapNode> dropped = new ArrayDeque<>();
+        HeapNode root = first;
+        do {
+            HeapNode next = root.getNext();
+            if (root.cancelled)
+                dropped.push(root);
+            else {
+                liveFirst = appendRoot(liveFirst, root);
+                roots++;
+            }
+            root = next;
+        } while (root != first);
+        this.numOfTrees = roots;
+        if (dropped.isEmpty())
+            return;
+        while (!dropped.isEmpty()) {
+            HeapNode node = dropped.pop();
+            this.size--;
+            this.numOfTombstones--;
+            if (!node.isMark())
+                this.nonMarked--;
+            HeapNode child = node.getChild();
+            if (child == null)
+                continue;
+            this.cutNodesChildrenFromParent(node);
+            node.setChild(null);
+            HeapNode sibling = child;
+            do {
+                HeapNode next = sibling.getNext();
+                if (sibling.cancelled)
+                    dropped.push(sibling);
+                else {
+                    liveFirst = appendRoot(liveFirst, sibling);
+                    roots++;
+                }
+                sibling = next;
+            } while (sibling != child);
+        }
+        this.setFirst(liveFirst);
+        this.numOfTrees = roots;
+        this.resetIncrementalState();
+    }
+
+    /**
+     * private void onRootRankDecreased(HeapNode root)
+     *
+     * Called when a cut took a child from root. If root was indexed in rootsByRank under its former rank,
+     * it is unindexed and moved to the front of the root list, back into the backlog.
+     *
+     */
+    private void onRootRankDecreased(HeapNode root) {
+        int formerRank = root.getRank() + 1;
+        if (formerRank >= this.rootsByRank.length || this.rootsByRank[formerRank] != root)
+            return;
+        this.rootsByRank[formerRank] = null;
+        this.removeRoot(root);
+        if (this.isEmpty())
+            this.setFirst(root);
+        else {
+            this.getLast().updateNextNode(root);
+            root.updateNextNode(this.getFirst());
+            this.setFirst(root);
+        }
+    }
+
+    /**
+     * private void ensureRootsByRank()
+     *
+     * Grows rootsByRank so that it has a cell for every possible rank of the current size
+     *
+     */
+    private void ensureRootsByRank() {
+        int length = bucketsCount(this.size);
+        if (this.rootsByRank.length < length)
+            this.rootsByRank = Arrays.copyOf(this.rootsByRank, length);
+    }
+
+    /**
+     * private void resetIncrementalState()
+     *
+     * Forgets the consolidated roots of incremental mode, making all the roots the backlog
+     *
+     */
+    private void resetIncrementalState() {
+        Arrays.fill(this.rootsByRank, null);
+        this.consolidatedFirst = null;
+        this.carry = null;
+    }
+
+    /**
+     * static int bucketsCount(int size)
+     *
+     * Returns a number of rank buckets that is enough for any heap of the given size, i.e. more than
+     * the largest possible rank. Looked up by the bit length of size in RANK_BOUNDS.
+     *
+     */
+    static int bucketsCount(int size) {
+        return RANK_BOUNDS[32 - Integer.numberOfLeadingZeros(size)];
+    }
+
+    /**
+     * private static int[] buildRankBounds()
+     *
+     * Builds the RANK_BOUNDS table: a tree of rank r has at least F(r+2) nodes (F(1) = F(2) = 1),
+     * so a heap of at most 2^b - 1 nodes has no rank above the largest r with F(r+2) <= 2^b - 1.
+     * Cell b holds that rank plus one.
+     *
+     */
+    private static int[] buildRankBounds() {
+        int[] bounds = new int[33];
+        for (int bits = 0; bits < bounds.length; bits++) {
+            long maxSize = (1L << bits) - 1;
+            long fibPrev = 1; // F(r+1)
+            long fib = 1; // F(r+2), starting at r = 0
+            int rank = 0;
+            while (fib + fibPrev <= maxSize) { // F(r+3) <= maxSize, so rank r+1 is possible
+                long fibNext = fib + fibPrev;
+                fibPrev = fib;
+                fib = fibNext;
+                rank++;
+            }
+            bounds[bits] = rank + 1;
+        }
+        return bounds;
+    }
+
     /**
      * private void changeNodeMark(HeapNode node)
      *
@@ -216,17 +806,31 @@ public class FibonacciHeap
     private void changeNodeMark(HeapNode node) {
         this.nonMarked = (node.isMark()) ? this.nonMarked + 1 : this.nonMarked - 1;
         node.setMark(!node.isMark());
+        if (node.isMark())
+            this.metrics.onMark();
     }
 
     /**
-     * private static HeapNode linkTwoTrees(HeapNode a, HeapNode b)
+     * private HeapNode linkTwoTrees(HeapNode a, HeapNode b)
      *
-     * Static function that gets as input two trees of the same rank, and generates a tree of rank bigger by one,
+     * Gets as input two trees of the same rank, and generates a tree of rank bigger by one,
      * by hanging the tree which has larger value in its root under the other tree.
      *
      */
-    private static HeapNode linkTwoTrees(HeapNode a, HeapNode b) {
+    private HeapNode linkTwoTrees(HeapNode a, HeapNode b) {
         numOfLinks++;
+        this.metrics.onLink();
+        return link(a, b);
+    }
+
+    /**
+     * private static HeapNode link(HeapNode a, HeapNode b)
+     *
+     * Links two trees of the same rank like linkTwoTrees, without counting the link, so that fork/join
+     * tasks can link trees of their own in parallel.
+     *
+     */
+    private static HeapNode link(HeapNode a, HeapNode b) {
         if (a.getKey() > b.getKey()) { // If a > b then a <-> b
             HeapNode temp = b;
             b = a;
@@ -253,38 +857,297 @@ public class FibonacciHeap
     	return this.getMin();
     } 
     
+   /**
+    * public int getKey(HeapNode node)
+    *
+    * Returns node's key.
+    *
+    */
+    public int getKey(HeapNode node) {
+        return node.getKey();
+    }
+
    /**
     * public void meld (FibonacciHeap heap2)
     *
-    * Melds heap2 with the current heap.
+    * Melds heap2 with the current heap, in O(1). heap2 is left empty, and its nodes now belong to the
+    * current heap: the owner tags of the two heaps are united (see Owner), so no node is visited.
+    * A heap can't be melded into itself.
     *
     */
     public void meld (FibonacciHeap heap2) {
+        if (heap2 == this)
+            throw new IllegalArgumentException("A heap can't be melded into itself");
+        if (heap2.isEmpty())  // Case 1: heap2 is empty
+            return;
+        this.adoptNodesOf(heap2);
         this.size += heap2.size;
         this.nonMarked += heap2.nonMarked;
         this.numOfTrees += heap2.numOfTrees;
-        if (heap2.isEmpty())  // Case 1: heap2 is empty
-            return;
+        this.numOfTombstones += heap2.numOfTombstones;
+        HeapNode heap2First = heap2.getFirst();
+        HeapNode heap2Min = heap2.getMin();
+        heap2.detachTrees();
         if (this.isEmpty()) {  // Case 2: this is empty
-            this.setMin(heap2.getMin());
-            this.setFirst(heap2.getFirst());
+            this.setMin(heap2Min);
+            this.setFirst(heap2First);
             return;
         }
         HeapNode currHeapLast = this.getLast();  // Case 3: both this and heap2 are not empty
-        heap2.getLast().updateNextNode(this.getFirst());
-        currHeapLast.updateNextNode(heap2.getFirst());
-        if (heap2.getMin().getKey() < this.getMin().getKey())
-          this.setMin(heap2.getMin());
+        heap2First.getPrev().updateNextNode(this.getFirst());
+        currHeapLast.updateNextNode(heap2First);
+        if (heap2Min.getKey() < this.getMin().getKey())
+          this.setMin(heap2Min);
+        if (this.consolidationBudget > 0) { // heap2's trees go to the backlog, in front of the root list
+            this.setFirst(heap2First);
+            this.consolidateSome(this.consolidationBudget);
+        }
+    }
+
+    /**
+     * protected void adoptNodesOf(FibonacciHeap heap2)
+     *
+     * Makes the nodes of heap2 belong to this heap, by uniting the owner tags of the two heaps (the tag
+     * of the smaller rank goes under the other), and gives heap2 a new tag. The caller moves the nodes.
+     *
+     */
+    protected void adoptNodesOf(FibonacciHeap heap2) {
+        Owner mine = this.owner;
+        Owner theirs = heap2.owner;
+        if (mine.rank < theirs.rank) {
+            mine.parent = theirs;
+            this.owner = theirs;
+        } else {
+            theirs.parent = mine;
+            if (mine.rank == theirs.rank)
+                mine.rank++;
+        }
+        heap2.owner = new Owner();
+    }
+
+    /**
+     * private void detachTrees()
+     *
+     * Empties the heap without touching its trees, which were moved to another heap by meld or split
+     *
+     */
+    private void detachTrees() {
+        this.first = null;
+        this.min = null;
+        this.size = 0;
+        this.numOfTrees = 0;
+        this.nonMarked = 0;
+        this.numOfTombstones = 0;
+        this.resetIncrementalState();
+    }
+
+   /**
+    * public void clear()
+    *
+    * Removes all the elements from the heap in O(1). The heap gets a new owner tag, so the nodes that
+    * were in it are rejected by decreaseKey and delete.
+    *
+    */
+    public void clear() {
+        this.detachTrees();
+        this.owner = new Owner();
+    }
+
+    /**
+     * void restore(HeapNode first, HeapNode min, int numOfTrees, int size, int nonMarked)
+     *
+     * Makes the heap hold the trees of the root list that starts at first, as rebuilt by HeapSnapshot or
+     * purge, or moved out of MonotoneFibonacciHeap's buckets. The counters are trusted, they must describe
+     * those trees, which have no cancelled node.
+     *
+     */
+    void restore(HeapNode first, HeapNode min, int numOfTrees, int size, int nonMarked) {
+        this.restore(first, min, numOfTrees, size, nonMarked, 0);
+    }
+
+    /**
+     * void restore(HeapNode first, HeapNode min, int numOfTrees, int size, int nonMarked, int numOfTombstones)
+     *
+     * Same as restore(first, min, numOfTrees, size, nonMarked), for trees that hold numOfTombstones cancelled
+     * nodes, which size and nonMarked count. min must be live.
+     *
+     */
+    void restore(HeapNode first, HeapNode min, int numOfTrees, int size, int nonMarked, int numOfTombstones) {
+        this.first = first;
+        this.min = min;
+        this.numOfTrees = numOfTrees;
+        this.size = size;
+        this.nonMarked = nonMarked;
+        this.numOfTombstones = numOfTombstones;
+        this.resetIncrementalState();
+    }
+
+   /**
+    * public boolean contains(HeapNode node)
+    *
+    * Returns true if and only if node is in the heap: it was inserted into the heap, or into a heap that
+    * was melded into it, and it wasn't deleted, cleared or split away since. Takes nearly O(1) time.
+    *
+    */
+    public boolean contains(HeapNode node) {
+        return node.owner == this.owner || (node.owner != null && node.owner.find() == this.owner);
+    }
+
+    /**
+     * protected void checkOwner(HeapNode node)
+     *
+     * Throws IllegalArgumentException if node is not in the heap, e.g. a stale node of another heap
+     *
+     */
+    protected void checkOwner(HeapNode node) {
+        if (!this.contains(node))
+            throw new IllegalArgumentException("Node with key " + node.getKey() + " is not in this heap");
+    }
+
+    /**
+     * protected void own(HeapNode node)
+     *
+     * Tags a node created by a subclass, or by HeapSnapshot, as a node of the heap.
+     *
+     */
+    protected void own(HeapNode node) {
+        node.owner = this.owner;
+    }
+
+    /**
+     * protected void disown(HeapNode node)
+     *
+     * Tags a node that a subclass deleted as belonging to no heap.
+     *
+     */
+    protected void disown(HeapNode node) {
+        node.owner = null;
+    }
+
+   /**
+    * public FibonacciHeap split(Predicate<HeapNode> rootFilter)
+    *
+    * Moves the trees whose root passes rootFilter to a new heap, which is returned, with the same metrics
+    * and consolidation settings. The trees are moved as they are, without links or re-inserts; only the
+    * owner tags of the moved nodes are rewritten, so split takes O(number of trees + moved nodes).
+    * The cancelled roots are dropped first (see cancel), so rootFilter only sees live roots; it is run on
+    * every root before anything is moved, so if it throws, the elements of the heap are unchanged.
+    *
+    */
+    public FibonacciHeap split(Predicate<HeapNode> rootFilter) {
+        FibonacciHeap heap2 = new FibonacciHeap(this.metrics);
+        heap2.consolidationBudget = this.consolidationBudget;
+        heap2.pool = this.pool;
+        heap2.parallelThreshold = this.parallelThreshold;
+        heap2.purgeThreshold = this.purgeThreshold;
+        if (this.isEmpty())
+            return heap2;
+        if (this.numOfTombstones > 0)
+            this.dropCancelledRoots();
+        HeapNode first = this.getFirst();
+        boolean[] moves = new boolean[this.numOfTrees];
+        int i = 0;
+        HeapNode root = first;
+        do {
+            moves[i++] = rootFilter.test(root);
+            root = root.getNext();
+        } while (root != first);
+        HeapNode keptFirst = null;
+        HeapNode keptMin = null;
+        HeapNode movedFirst = null;
+        HeapNode movedMin = null;
+        int movedTrees = 0;
+        int movedSize = 0;
+        int movedNonMarked = 0;
+        int movedTombstones = 0;
+        ArrayDeque<HeapNode> siblingLists = new ArrayDeque<>();
+        i = 0;
+        root = first;
+        do {
+            HeapNode next = root.getNext();
+            if (moves[i++]) {
+                movedTrees++;
+                root.owner = heap2.owner;
+                movedSize++;
+                if (!root.isMark())
+                    movedNonMarked++;
+                if (root.getChild() != null)
+                    siblingLists.push(root.getChild());
+                while (!siblingLists.isEmpty()) { // Tag the tree's other nodes, and count them
+                    HeapNode listFirst = siblingLists.pop();
+                    HeapNode node = listFirst;
+                    do {
+                        if (node.cancelled) // Stays owned by no heap
+                            movedTombstones++;
+                        else
+                            node.owner = heap2.owner;
+                        movedSize++;
+                        if (!node.isMark())
+                            movedNonMarked++;
+                        if (node.getChild() != null)
+                            siblingLists.push(node.getChild());
+                        node = node.getNext();
+                    } while (node != listFirst);
+                }
+                movedFirst = appendRoot(movedFirst, root);
+                if (movedMin == null || root.getKey() < movedMin.getKey())
+                    movedMin = root;
+            } else {
+                keptFirst = appendRoot(keptFirst, root);
+                if (keptMin == null || root.getKey() < keptMin.getKey())
+                    keptMin = root;
+            }
+            root = next;
+        } while (root != first);
+        if (movedTrees == 0)
+            return heap2;
+        if (keptFirst == null)
+            this.detachTrees();
+        else
+            this.restore(keptFirst, keptMin, this.numOfTrees - movedTrees, this.size - movedSize,
+                    this.nonMarked - movedNonMarked, this.numOfTombstones - movedTombstones);
+        heap2.restore(movedFirst, movedMin, movedTrees, movedSize, movedNonMarked, movedTombstones);
+        return heap2;
+    }
+
+   /**
+    * public FibonacciHeap split(int threshold)
+    *
+    * Moves the trees whose root key is at least threshold to a new heap, which is returned, like
+    * split(root -> root.getKey() >= threshold). All the keys of the new heap are at least threshold, but
+    * keys at least threshold can stay in the heap, below smaller roots.
+    *
+    */
+    public FibonacciHeap split(int threshold) {
+        return this.split(root -> root.getKey() >= threshold);
+    }
+
+    /**
+     * private static HeapNode appendRoot(HeapNode listFirst, HeapNode root)
+     *
+     * Appends root at the end of the circular list starting at listFirst (null for an empty list), and
+     * returns the first node of the list
+     *
+     */
+    private static HeapNode appendRoot(HeapNode listFirst, HeapNode root) {
+        if (listFirst == null) {
+            root.updateNextNode(root);
+            return root;
+        }
+        listFirst.getPrev().updateNextNode(root);
+        root.updateNextNode(listFirst);
+        return listFirst;
     }
 
    /**
     * public int size()
     *
-    * Returns the number of elements in the heap.
+    * Returns the number of elements in the heap. Cancelled nodes are not counted, even before they are
+    * dropped from the trees.
     *   
     */
     public int size() {
-    	return this.size;
+    	return this.size - this.numOfTombstones;
     }
     	
     /**
@@ -299,35 +1162,35 @@ public class FibonacciHeap
             return new int[0];
         if (this.size == 1)
             return new int[] {1};
-        int arrSize = (int)Math.ceil(Math.log(this.size) / Math.log(PHI));
+        int arrSize = bucketsCount(this.size);
         return this.buildRanksArray(arrSize);
     }
 
     /**
      * private int[] buildRanksArray(int size)
      *
-     * Gets size value and return an array of counters with size "size".
+     * Gets size value and return an array of counters, cropped after the last non-zero counter.
      * The i-th entry contains the number of trees of order i in the heap.
+     * The counting is done in the heap's reusable rankCounters array, which is cleared afterwards.
      *
      */
     private int[] buildRanksArray(int size) {
-        int[] ranksArray = new int[size];
-        ranksArray[this.getFirst().getRank()]++;
-
-        HeapNode curr = this.getFirst().getNext();
-        while (curr != this.getFirst()) {
-            ranksArray[curr.getRank()]++;
+        if (this.rankCounters.length < size)
+            this.rankCounters = new int[size];
+        int[] ranksArray = this.rankCounters;
+        int maxRank = 0;
+        HeapNode curr = this.getFirst();
+        do {
+            int rank = curr.getRank();
+            ranksArray[rank]++;
+            if (rank > maxRank)
+                maxRank = rank;
             curr = curr.getNext();
-        }
-
-        // Crop array from 0 to the last non-zero cell
-        int i = size - 1;
-        for (; i > -1; i--)
-            if (ranksArray[i] != 0)
-                break;
+        } while (curr != this.getFirst());
 
-        int[] output = new int[i + 1];
-        System.arraycopy(ranksArray, 0, output, 0, i + 1);
+        int[] output = new int[maxRank + 1];
+        System.arraycopy(ranksArray, 0, output, 0, maxRank + 1);
+        Arrays.fill(ranksArray, 0, maxRank + 1, 0);
 
         return output;
     }
@@ -336,57 +1199,245 @@ public class FibonacciHeap
     * public void delete(HeapNode x)
     *
     * Deletes the node x from the heap.
-	* It is assumed that x indeed belongs to the heap.
+	* x must belong to the heap, otherwise IllegalArgumentException is thrown (see contains).
+    * x is cut from its parent (as decreaseKey below the minimum would do) and then treated as minus infinity,
+    * without any key arithmetic that could overflow.
     *
     */
     public void delete(HeapNode x) {
-        int delta = x.getKey() - this.getMin().getKey();
-    	this.decreaseKey(x, delta + 1);
+        this.checkOwner(x);
+        if (!x.isRoot())
+            this.metrics.onCascadingCut(this.cascadingCut(x, x.getParent()));
+        this.setMin(x);
         this.deleteMin();
     }
 
+   /**
+    * public void cancel(HeapNode x)
+    *
+    * Deletes the node x from the heap lazily, in O(1): x is only marked as cancelled, and stays in its tree as
+    * a tombstone. A cancelled root is dropped, its children becoming roots, when it surfaces during a
+    * consolidation or a deleteMin, and all the cancelled nodes are purged (see purge) once they are more than
+    * the purge threshold of the nodes in the trees. Cancelling the min deletes it right away, so findMin
+    * never returns a cancelled node.
+    * size() doesn't count the cancelled nodes, while countersRep(), nonMarked() and potential() describe the
+    * trees as they are, cancelled nodes included.
+    * x must belong to the heap, otherwise IllegalArgumentException is thrown (see contains).
+    *
+    */
+    public void cancel(HeapNode x) {
+        this.checkOwner(x);
+        if (x == this.getMin()) {
+            this.deleteMin();
+            return;
+        }
+        x.owner = null; // Handles to the cancelled node are rejected from now on
+        x.cancelled = true;
+        this.numOfTombstones++;
+        if (this.numOfTombstones > this.purgeThreshold * this.size)
+            this.purge();
+    }
+
+   /**
+    * public void purge()
+    *
+    * Removes all the cancelled nodes from the trees now, in O(n): the live nodes are taken apart into single
+    * roots, keeping their handles, which the next deleteMin links again like freshly inserted ones. In
+    * incremental mode they are consolidated right away (see compact), as deleteMin scans all the roots there.
+    *
+    */
+    public void purge() {
+        if (this.numOfTombstones == 0)
+            return;
+        HeapNode liveFirst = null;
+        int live = 0;
+        ArrayDeque<HeapNode> siblingLists = new ArrayDeque<>();
+        siblingLists.push(this.getFirst());
+        while (!siblingLists.isEmpty()) {
+            HeapNode listFirst = siblingLists.pop();
+            HeapNode node = listFirst;
+            do {
+                HeapNode next = node.getNext();
+                if (node.getChild() != null)
+                    siblingLists.push(node.getChild());
+                node.setChild(null);
+                node.setParent(null);
+                node.setRank(0);
+                node.setMark(false);
+                if (!node.cancelled) {
+                    liveFirst = appendRoot(liveFirst, node);
+                    live++;
+                }
+                node = next;
+            } while (node != listFirst);
+        }
+        this.restore(liveFirst, this.getMin(), live, live, live);
+        if (this.consolidationBudget > 0)
+            this.compact();
+    }
+
+   /**
+    * public int tombstones()
+    *
+    * Returns the number of cancelled nodes that are still in the trees.
+    *
+    */
+    public int tombstones() {
+        return this.numOfTombstones;
+    }
+
+   /**
+    * public void setPurgeThreshold(double threshold)
+    *
+    * Sets the fraction of cancelled nodes, among the nodes in the trees, above which cancel purges them all.
+    * A threshold of 1 or more turns the automatic purge off. The default is DEFAULT_PURGE_THRESHOLD.
+    *
+    */
+    public void setPurgeThreshold(double threshold) {
+        if (!(threshold > 0))
+            throw new IllegalArgumentException("Purge threshold must be positive: " + threshold);
+        this.purgeThreshold = threshold;
+    }
+
+   /**
+    * public double getPurgeThreshold()
+    *
+    * Returns the fraction of cancelled nodes above which cancel purges them.
+    *
+    */
+    public double getPurgeThreshold() {
+        return this.purgeThreshold;
+    }
+
    /**
     * public void decreaseKey(HeapNode x, int delta)
     *
     * Decreases the key of the node x by a non-negative value delta. The structure of the heap should be updated
     * to reflect this change (for example, the cascading cuts procedure should be applied if needed).
+    * x must belong to the heap, otherwise IllegalArgumentException is thrown (see contains).
     */
     public void decreaseKey(HeapNode x, int delta) {
+        this.checkOwner(x);
         x.decreaseKey(delta);
         if (x.isRoot() && x.getKey() < this.getMin().getKey()) {
             this.setMin(x); // Case 1: x is a root and its key is less than min's key
             return;
         }
-        // Case 2-4: x is min, x is a root and its key is bigger than min's key, or x doesn't violate heap rules
-        if (this.getMin() == x || (x.isRoot() && x.getKey() > this.getMin().getKey())
+        // Case 2-4: x is min, x is a root and its key is not less than min's key, or x doesn't violate heap rules
+        if (this.getMin() == x || (x.isRoot() && x.getKey() >= this.getMin().getKey())
                 || x.getParent().getKey() < x.getKey())
             return;
-        this.cascadingCut(x, x.getParent());
+        int cuts = this.cascadingCut(x, x.getParent());
+        this.metrics.onCascadingCut(cuts);
+        if (this.consolidationBudget > 0) // The cut subtrees joined the backlog
+            this.consolidateSome(this.consolidationBudget + 2 * cuts);
+    }
+
+   /**
+    * public void decreaseKeys(HeapNode[] nodes, int[] deltas)
+    *
+    * Decreases the key of nodes[i] by the non-negative value deltas[i] for every i, in order, leaving the
+    * heap as the sequence of decreaseKey calls would. The subtrees cut on the way are chained aside, and
+    * the chain is spliced into the root list once, at the end. All the nodes are checked to belong to the
+    * heap before any key is changed.
+    *
+    */
+    public void decreaseKeys(HeapNode[] nodes, int[] deltas) {
+        if (nodes.length != deltas.length)
+            throw new IllegalArgumentException("nodes and deltas differ in length");
+        for (HeapNode node : nodes)
+            this.checkOwner(node);
+        int numOfTreesBefore = this.numOfTrees;
+        try {
+            for (int i = 0; i < nodes.length; i++)
+                this.decreaseKeyDeferred(nodes[i], deltas[i]);
+        } finally {
+            this.splicePending();
+        }
+        if (this.consolidationBudget > 0) // The cut subtrees joined the backlog
+            this.consolidateSome(this.consolidationBudget + 2 * (this.numOfTrees - numOfTreesBefore));
     }
 
     /**
-     * private void cascadingCut(HeapNode x, HeapNode xParent)
+     * private void decreaseKeyDeferred(HeapNode x, int delta)
      *
-     * Perform cascading-cut process on x and xParent to preserve the heap structure
+     * Decreases the key of x like decreaseKey, but leaves the cut subtrees in the pending chain.
+     * The caller must call splicePending before any other operation on the heap.
      *
      */
-    private void cascadingCut(HeapNode x, HeapNode xParent) {
-        this.cut(x, xParent);
-        // Updating x to be first
-        this.getFirst().getPrev().updateNextNode(x);
-        x.updateNextNode(this.getFirst());
-        this.setFirst(x);
+    private void decreaseKeyDeferred(HeapNode x, int delta) {
+        x.decreaseKey(delta);
+        if (x.isRoot()) { // Also covers the nodes already in the pending chain
+            if (x.getKey() < this.getMin().getKey())
+                this.setMin(x);
+        } else if (x.getParent().getKey() >= x.getKey())
+            this.metrics.onCascadingCut(this.cutToPending(x, x.getParent()));
+    }
 
-        if (this.getMin().getKey() > x.getKey())
-            this.setMin(x);
-        if (!xParent.isRoot()) {
-            if (!xParent.isMark())
-                this.changeNodeMark(xParent);
+    /**
+     * private int cascadingCut(HeapNode x, HeapNode xParent)
+     *
+     * Perform cascading-cut process on x and xParent to preserve the heap structure.
+     * Returns the number of cuts made.
+     *
+     */
+    private int cascadingCut(HeapNode x, HeapNode xParent) {
+        int cuts = this.cutToPending(x, xParent);
+        this.splicePending();
+        return cuts;
+    }
+
+    /**
+     * private int cutToPending(HeapNode x, HeapNode xParent)
+     *
+     * Cuts x from xParent and goes on cutting the marked ancestors, in a loop. Every cut node is put in
+     * front of the pending chain, and becomes the min if its key is smaller, so splicing the chain gives
+     * the same root list as making every cut node the first root in turn.
+     * Returns the number of cuts made.
+     *
+     */
+    private int cutToPending(HeapNode x, HeapNode xParent) {
+        int cuts = 0;
+        while (true) {
+            this.cut(x, xParent);
+            cuts++;
+            if (this.pendingFirst == null)
+                this.pendingLast = x;
             else
-                this.cascadingCut(xParent, xParent.getParent());
+                x.updateNextNode(this.pendingFirst);
+            this.pendingFirst = x;
+            if (this.getMin().getKey() > x.getKey() && !x.cancelled) // A cancelled ancestor is never the min
+                this.setMin(x);
+            if (xParent.isRoot()) {
+                if (this.consolidationBudget > 0)
+                    this.onRootRankDecreased(xParent);
+                return cuts;
+            }
+            if (!xParent.isMark()) {
+                this.changeNodeMark(xParent);
+                return cuts;
+            }
+            x = xParent;
+            xParent = x.getParent();
         }
     }
 
+    /**
+     * private void splicePending()
+     *
+     * Splices the pending chain of cut subtrees in front of the root list
+     *
+     */
+    private void splicePending() {
+        if (this.pendingFirst == null)
+            return;
+        this.getFirst().getPrev().updateNextNode(this.pendingFirst);
+        this.pendingLast.updateNextNode(this.getFirst());
+        this.setFirst(this.pendingFirst);
+        this.pendingFirst = null;
+        this.pendingLast = null;
+    }
+
     /**
      * private void cut(HeapNode x, HeapNode xParent)
      *
@@ -395,6 +1446,7 @@ public class FibonacciHeap
      */
     private void cut(HeapNode x, HeapNode xParent) {
         numOfCuts++;
+        this.metrics.onCut();
         this.numOfTrees++;
         x.setParent(null);
         if (x.isMark())
@@ -428,10 +1480,142 @@ public class FibonacciHeap
     * plus twice the number of marked nodes in the heap. 
     */
     public int potential() {
-        int marked = this.size() - this.nonMarked();
+        int marked = this.size - this.nonMarked(); // Cancelled nodes still in the trees count
         return this.numOfTrees + 2 * marked;
     }
 
+   /**
+    * public void checkInvariants()
+    *
+    * Walks the whole heap, in O(n) without recursion, and throws IllegalStateException naming the first
+    * broken invariant: circular sibling lists, parent pointers and heap order, ranks equal to the number of
+    * children and bounded by the size of the subtree, unmarked roots, the min being a live root whose key is
+    * minimal, the counters (size, numOfTrees, nonMarked, tombstones) matching the trees, the owner tags, and
+    * the state of incremental mode (rootsByRank, carry and consolidatedFirst holding roots of the list).
+    * Meant for tests and fuzzing (see HeapFuzzer), after any operation.
+    *
+    */
+    public void checkInvariants() {
+        if (this.pendingFirst != null)
+            throw invariantBroken("cut subtrees left in the pending chain");
+        if (this.first == null) {
+            if (this.min != null || this.size != 0 || this.numOfTrees != 0 || this.nonMarked != 0
+                    || this.numOfTombstones != 0)
+                throw invariantBroken("empty root list, but min or counters are set");
+            if (this.carry != null || this.consolidatedFirst != null)
+                throw invariantBroken("empty root list, but incremental state is set");
+            for (HeapNode indexed : this.rootsByRank) {
+                if (indexed != null)
+                    throw invariantBroken("empty root list, but rootsByRank isn't empty");
+            }
+            return;
+        }
+        if (this.min == null || this.min.getParent() != null || this.min.cancelled || !this.contains(this.min))
+            throw invariantBroken("min isn't a live root of the heap");
+        HeapNode[] nodes = new HeapNode[this.size]; // In breadth first order, so parents come before children
+        int[] parents = new int[this.size];
+        int count = 0;
+        int indexedRoots = 0;
+        boolean carryFound = (this.carry == null);
+        boolean consolidatedFirstFound = (this.consolidatedFirst == null);
+        HeapNode root = this.first;
+        do {
+            if (count == this.size)
+                throw invariantBroken("more roots than size " + this.size + ", or an open root list");
+            if (root.getNext().getPrev() != root)
+                throw invariantBroken("root list broken after key " + root.getKey());
+            if (root.getParent() != null)
+                throw invariantBroken("root " + root.getKey() + " has a parent");
+            if (root.isMark())
+                throw invariantBroken("root " + root.getKey() + " is marked");
+            if (root.getRank() < this.rootsByRank.length && this.rootsByRank[root.getRank()] == root)
+                indexedRoots++;
+            carryFound |= (root == this.carry);
+            consolidatedFirstFound |= (root == this.consolidatedFirst);
+            nodes[count] = root;
+            parents[count++] = -1;
+            root = root.getNext();
+        } while (root != this.first);
+        if (count != this.numOfTrees)
+            throw invariantBroken("numOfTrees is " + this.numOfTrees + " but the root list has " + count + " roots");
+        for (int i = 0; i < count; i++) { // count grows as the children are appended
+            HeapNode node = nodes[i];
+            int children = 0;
+            HeapNode child = node.getChild();
+            if (child != null) {
+                do {
+                    if (count == this.size)
+                        throw invariantBroken("more nodes than size " + this.size + ", or an open child list");
+                    if (child.getNext().getPrev() != child)
+                        throw invariantBroken("child list of key " + node.getKey() + " broken");
+                    if (child.getParent() != node)
+                        throw invariantBroken("child " + child.getKey() + " of key " + node.getKey()
+                                + " has another parent");
+                    if (child.getKey() < node.getKey())
+                        throw invariantBroken("key " + child.getKey() + " below its parent's key " + node.getKey());
+                    children++;
+                    nodes[count] = child;
+                    parents[count++] = i;
+                    child = child.getNext();
+                } while (child != node.getChild());
+            }
+            if (children != node.getRank())
+                throw invariantBroken("key " + node.getKey() + " has rank " + node.getRank() + " but "
+                        + children + " children");
+        }
+        if (count != this.size)
+            throw invariantBroken("size is " + this.size + " but the trees hold " + count + " nodes");
+        int[] subtreeSizes = new int[count];
+        int unmarked = 0;
+        int cancelled = 0;
+        for (int i = count - 1; i >= 0; i--) { // Children before parents
+            HeapNode node = nodes[i];
+            subtreeSizes[i]++;
+            if (parents[i] >= 0)
+                subtreeSizes[parents[i]] += subtreeSizes[i];
+            if (node.getRank() >= bucketsCount(subtreeSizes[i]))
+                throw invariantBroken("rank " + node.getRank() + " too large for a subtree of " + subtreeSizes[i]
+                        + " nodes");
+            if (!node.isMark())
+                unmarked++;
+            if (node.cancelled) {
+                cancelled++;
+                if (node.owner != null)
+                    throw invariantBroken("cancelled key " + node.getKey() + " still has an owner");
+            } else {
+                if (!this.contains(node))
+                    throw invariantBroken("key " + node.getKey() + " doesn't belong to the heap");
+                if (node.getKey() < this.min.getKey())
+                    throw invariantBroken("min " + this.min.getKey() + " isn't minimal, " + node.getKey() + " is smaller");
+            }
+        }
+        if (unmarked != this.nonMarked)
+            throw invariantBroken("nonMarked is " + this.nonMarked + " but " + unmarked + " nodes are unmarked");
+        if (cancelled != this.numOfTombstones)
+            throw invariantBroken("tombstones is " + this.numOfTombstones + " but " + cancelled + " nodes are cancelled");
+        int indexed = 0;
+        for (HeapNode node : this.rootsByRank) {
+            if (node != null)
+                indexed++;
+        }
+        if (indexed != indexedRoots)
+            throw invariantBroken("rootsByRank holds " + indexed + " nodes, " + indexedRoots + " roots of their rank");
+        if (!carryFound || !consolidatedFirstFound)
+            throw invariantBroken("carry or consolidatedFirst isn't a root");
+        if (this.consolidationBudget == 0 && (indexed > 0 || this.carry != null || this.consolidatedFirst != null))
+            throw invariantBroken("incremental state set without a consolidation budget");
+    }
+
+    /**
+     * protected static IllegalStateException invariantBroken(String reason)
+     *
+     * Returns the exception checkInvariants throws for reason
+     *
+     */
+    protected static IllegalStateException invariantBroken(String reason) {
+        return new IllegalStateException("Heap invariant broken: " + reason);
+    }
+
    /**
     * public static int totalLinks() 
     *
@@ -439,6 +1623,7 @@ public class FibonacciHeap
     * run-time of the program. A link operation is the operation which gets as input two
     * trees of the same rank, and generates a tree of rank bigger by one, by hanging the
     * tree which has larger value in its root under the other tree.
+    * The count is shared by all the heaps; see HeapMetrics for the counts of a single heap.
     */
     public static int totalLinks() {
     	return numOfLinks;
@@ -450,6 +1635,7 @@ public class FibonacciHeap
     * This static function returns the total number of cut operations made during the
     * run-time of the program. A cut operation is the operation which disconnects a subtree
     * from its parent (during decreaseKey/delete methods). 
+    * The count is shared by all the heaps; see HeapMetrics for the counts of a single heap.
     */
     public static int totalCuts() {
     	return numOfCuts;
@@ -458,41 +1644,61 @@ public class FibonacciHeap
      /**
     * public static int[] kMin(FibonacciHeap H, int k) 
     *
-    * This static function returns the k smallest elements in a Fibonacci heap that contains a single tree.
-    * The function should run in O(k*deg(H)). (deg(H) is the degree of the only tree in H.)
+    * This static function returns the k smallest elements in a Fibonacci heap, in ascending order
+    * (or all of its elements, if it has less than k). H may have any number of trees.
+    * See AscendingKeyIterator for the running time.
     *  
     * ###CRITICAL### : you are NOT allowed to change H. 
     */
     public static int[] kMin(FibonacciHeap H, int k) {
-        if (H.isEmpty())
-            return new int[0];
-        FibonacciHeap kHeap = new FibonacciHeap();
-        int[] minKSortedArray = new int[k];
-        HeapNode min = H.getMin();
-        kHeap.insert(min.getKey(), min);
-        for (int i = 0; i < k; i++) {
-            HeapNode curr = kHeap.findMin();
-            minKSortedArray[i] = curr.getKey();
-            kHeap.deleteMin();
-            if (curr.getMatchingNode().getChild() != null)
-                addNodesChildrenToKHeap(kHeap, curr.getMatchingNode());
-        }
-        return minKSortedArray;
+        return H.topK(k);
+    }
+
+   /**
+    * public int[] topK(int k)
+    *
+    * Returns the min(k, size) smallest keys of the heap in ascending order, without changing the heap.
+    *
+    */
+    public int[] topK(int k) {
+        int[] keys = new int[Math.max(Math.min(k, this.size()), 0)];
+        PrimitiveIterator.OfInt iterator = this.ascendingKeys();
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = iterator.nextInt();
+        return keys;
+    }
+
+   /**
+    * public PrimitiveIterator.OfInt ascendingKeys()
+    *
+    * Returns an iterator over the keys of the heap in ascending order, which finds each key only when
+    * it is requested. The heap must not be changed while it is iterated.
+    *
+    */
+    public PrimitiveIterator.OfInt ascendingKeys() {
+        return new AscendingKeyIterator(this);
+    }
+
+   /**
+    * public IntStream sortedKeys()
+    *
+    * Returns a lazy, sequential stream of the keys of the heap in ascending order,
+    * e.g. heap.sortedKeys().limit(10) for the 10 smallest keys.
+    *
+    */
+    public IntStream sortedKeys() {
+        return StreamSupport.intStream(Spliterators.spliterator(this.ascendingKeys(), this.size(),
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL), false);
     }
 
     /**
-     * private static void addNodesChildrenToKHeap(FibonacciHeap kHeap, HeapNode node)
+     * public HeapMetrics getMetrics()
      *
-     * Static function that gets FibonacciHeap kHeap with one single tree and HeapNode node
-     * and adds all node's children to kHeap
+     * Returns the metrics the heap reports to (HeapMetrics.NOOP unless given to the constructor)
      *
      */
-    private static void addNodesChildrenToKHeap(FibonacciHeap kHeap, HeapNode node) {
-        HeapNode nodeCurrChild = node.getChild();
-        do {
-            kHeap.insert(nodeCurrChild.getKey(), nodeCurrChild);
-            nodeCurrChild = nodeCurrChild.getNext();
-        } while (nodeCurrChild != node.getChild());
+    public HeapMetrics getMetrics() {
+        return this.metrics;
     }
 
     /**
@@ -545,7 +1751,131 @@ public class FibonacciHeap
         return this.getFirst().getPrev();
     }
 
+     /**
+     * private static final class Owner
+     *
+     * The owner tag of nodes, in a union-find forest: a node belongs to the heap whose owner field is the
+     * root of the tree of the node's tag. meld unites the trees of the two heaps in O(1) (by rank), instead
+     * of retagging the melded nodes, and find compresses the paths it walks (by halving).
+     */
+    private static final class Owner {
+        private Owner parent = this;
+        private int rank;
+
+        Owner find() {
+            Owner tag = this;
+            while (tag.parent != tag) {
+                tag.parent = tag.parent.parent;
+                tag = tag.parent;
+            }
+            return tag;
+        }
+    }
+
+    /**
+     * private static class ConsolidationTask
+     *
+     * Links the trees of roots[from..to) by rank, and returns the rank buckets of the result. Ranges larger
+     * than PARALLEL_LEAF_SIZE are split in two, and the buckets of the right half are added into those of
+     * the left half, carrying a linked tree to the next rank as in binary addition.
+     */
+    private static class ConsolidationTask extends RecursiveTask<HeapNode[]> {
+        private static final long serialVersionUID = 1L;
+        private final HeapNode[] roots;
+        private final int from;
+        private final int to;
+        private final int bucketsLength;
+        long links;
+
+        ConsolidationTask(HeapNode[] roots, int from, int to, int bucketsLength) {
+            this.roots = roots;
+            this.from = from;
+            this.to = to;
+            this.bucketsLength = bucketsLength;
+        }
+
+        @Override
+        protected HeapNode[] compute() {
+            if (this.to - this.from <= PARALLEL_LEAF_SIZE) {
+                HeapNode[] bucketsList = new HeapNode[this.bucketsLength];
+                for (int i = this.from; i < this.to; i++)
+                    this.add(bucketsList, this.roots[i]);
+                return bucketsList;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            ConsolidationTask left = new ConsolidationTask(this.roots, this.from, middle, this.bucketsLength);
+            ConsolidationTask right = new ConsolidationTask(this.roots, middle, this.to, this.bucketsLength);
+            left.fork();
+            HeapNode[] rightBuckets = right.compute();
+            HeapNode[] bucketsList = left.join();
+            this.links = left.links + right.links;
+            for (HeapNode tree : rightBuckets) {
+                if (tree != null)
+                    this.add(bucketsList, tree);
+            }
+            return bucketsList;
+        }
+
+        private void add(HeapNode[] bucketsList, HeapNode tree) {
+            int rank = tree.getRank();
+            while (bucketsList[rank] != null) { // Link as long as a tree of the same rank exists
+                tree = link(tree, bucketsList[rank]);
+                bucketsList[rank] = null;
+                this.links++;
+                rank++;
+            }
+            bucketsList[rank] = tree;
+        }
+    }
+
     /**
+     * private static class BuildTask
+     *
+     * Builds a binomial tree of the given rank from keys[start..start + 2^rank), by linking the trees of
+     * its two halves; halves larger than PARALLEL_LEAF_SIZE are built in parallel.
+     */
+    private static class BuildTask extends RecursiveTask<HeapNode> {
+        private static final long serialVersionUID = 1L;
+        private final int[] keys;
+        private final HeapNode[] nodes;
+        private final Owner owner;
+        private final int start;
+        private final int rank;
+
+        BuildTask(int[] keys, HeapNode[] nodes, Owner owner, int start, int rank) {
+            this.keys = keys;
+            this.nodes = nodes;
+            this.owner = owner;
+            this.start = start;
+            this.rank = rank;
+        }
+
+        @Override
+        protected HeapNode compute() {
+            if ((1 << this.rank) <= PARALLEL_LEAF_SIZE)
+                return this.build(this.start, this.rank);
+            BuildTask left = new BuildTask(this.keys, this.nodes, this.owner, this.start, this.rank - 1);
+            BuildTask right = new BuildTask(this.keys, this.nodes, this.owner, this.start + (1 << (this.rank - 1)),
+                    this.rank - 1);
+            left.fork();
+            HeapNode rightTree = right.compute();
+            return link(left.join(), rightTree);
+        }
+
+        private HeapNode build(int from, int treeRank) {
+            if (treeRank == 0) {
+                HeapNode node = new HeapNode(this.keys[from]);
+                node.owner = this.owner;
+                if (this.nodes != null)
+                    this.nodes[from] = node;
+                return node;
+            }
+            HeapNode left = this.build(from, treeRank - 1);
+            return link(left, this.build(from + (1 << (treeRank - 1)), treeRank - 1));
+        }
+    }
+
+   /**
     * public class HeapNode
     * 
     * If you wish to implement classes other than FibonacciHeap
@@ -562,6 +1892,9 @@ public class FibonacciHeap
         private HeapNode prev;
         private HeapNode parent;
         private HeapNode matchingNode;
+        private int id = -1;
+        private Owner owner; // null once deleted, see contains
+        private boolean cancelled; // A tombstone left in the trees by cancel
 
        public HeapNode(int key) {
            this.key = key;
@@ -648,6 +1981,34 @@ public class FibonacciHeap
        public HeapNode getMatchingNode() {
             return matchingNode;
        }
+
+        /**
+         * public int getId()
+         *
+         * return node's id field (the external id given to IndexedFibonacciHeap, or -1).
+         *
+         */
+       public int getId() {
+            return id;
+       }
+        /**
+         * public boolean isCancelled()
+         *
+         * Returns true if and only if the node was cancelled (see FibonacciHeap.cancel) and is only a tombstone.
+         *
+         */
+       public boolean isCancelled() {
+            return cancelled;
+       }
+        /**
+         * void setCancelled()
+         *
+         * Makes the node a tombstone, for HeapSnapshot to restore the cancelled nodes it saved.
+         *
+         */
+       void setCancelled() {
+            this.cancelled = true;
+       }
         /**
          * public void setKey(int key)
          *
@@ -719,6 +2080,15 @@ public class FibonacciHeap
          */
        public void setMatchingNode(HeapNode matchingNode) {
             this.matchingNode = matchingNode;
+       }
+        /**
+         * public void setId(int id)
+         *
+         * sets the id field of the node to be id.
+         *
+         */
+       public void setId(int id) {
+            this.id = id;
        }
         /**
          * public void decreaseKey(int delta)
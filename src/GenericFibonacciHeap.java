@@ -0,0 +1,409 @@
+import java.util.Comparator;
+
+/**
+ * GenericFibonacciHeap
+ *
+ * An implementation of a Fibonacci Heap over keys of any type, ordered by a Comparator, where every node
+ * also carries a value (payload). Callers get back to their own objects through the node's value, instead
+ * of keeping a side map from keys to nodes.
+ *
+ * delete(x) doesn't compute a key smaller than the minimum: x is cut from its parent and then treated as
+ * minus infinity, so it works for any key type and near the limits of numeric types.
+ * See LongFibonacciHeap and DoubleFibonacciHeap for the specializations over primitive keys.
+ */
+public class GenericFibonacciHeap<K, V>
+{
+    private final Comparator<? super K> comparator;
+    private Node<K, V> min;
+    private Node<K, V> first;
+    private int size;
+    private int numOfTrees;
+    private int nonMarked;
+    private Object[] buckets = new Object[0];
+
+    public GenericFibonacciHeap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * public static <K extends Comparable<? super K>, V> GenericFibonacciHeap<K, V> naturalOrder()
+     *
+     * Returns an empty heap ordered by the natural order of its keys.
+     *
+     */
+    public static <K extends Comparable<? super K>, V> GenericFibonacciHeap<K, V> naturalOrder() {
+        return new GenericFibonacciHeap<>(Comparator.naturalOrder());
+    }
+
+   /**
+    * public boolean isEmpty()
+    *
+    * Returns true if and only if the heap is empty.
+    *
+    */
+    public boolean isEmpty() {
+        return this.first == null;
+    }
+
+   /**
+    * public Node<K, V> insert(K key, V value)
+    *
+    * Creates a node which contains the given key and value, and inserts it into the heap.
+    *
+    * Returns the newly created node.
+    */
+    public Node<K, V> insert(K key, V value) {
+        Node<K, V> newNode = new Node<>(key, value);
+        this.size++;
+        this.nonMarked++;
+        this.addRoot(newNode);
+        if (this.min == null || this.less(newNode, this.min))
+            this.min = newNode;
+        return newNode;
+    }
+
+   /**
+    * public Node<K, V> findMin()
+    *
+    * Returns the node of the heap whose key is minimal, or null if the heap is empty.
+    *
+    */
+    public Node<K, V> findMin() {
+        return this.min;
+    }
+
+   /**
+    * public Node<K, V> deleteMin()
+    *
+    * Deletes the node containing the minimum key, and returns it (or null if the heap is empty).
+    *
+    */
+    public Node<K, V> deleteMin() {
+        Node<K, V> deleted = this.min;
+        if (deleted == null)
+            return null;
+        this.size--;
+        this.nonMarked--; // Roots are never marked
+        this.removeRoot(deleted);
+        if (deleted.child != null) { // Deleted node's children become roots
+            Node<K, V> child = deleted.child;
+            do {
+                child.parent = null;
+                if (child.mark) {
+                    child.mark = false;
+                    this.nonMarked++;
+                }
+                child = child.next;
+            } while (child != deleted.child);
+            this.addRoots(deleted.child, deleted.rank);
+        }
+        deleted.child = null;
+        deleted.next = deleted;
+        deleted.prev = deleted;
+        if (this.first == null)
+            this.min = null;
+        else
+            this.consolidating();
+        return deleted;
+    }
+
+    /**
+     * private void consolidating()
+     *
+     * Perform consolidation/successive linking process on the heap
+     *
+     */
+    @SuppressWarnings("unchecked")
+    private void consolidating() {
+        int arrSize = FibonacciHeap.bucketsCount(this.size);
+        if (this.buckets.length < arrSize)
+            this.buckets = new Object[arrSize];
+        Object[] bucketsList = this.buckets;
+        int maxRank = 0;
+        Node<K, V> node = this.first;
+        for (int i = this.numOfTrees; i > 0; i--) {
+            Node<K, V> nodeNext = node.next;
+            int nodeRank = node.rank;
+            while (bucketsList[nodeRank] != null) { // Link as long as a tree of the same rank exists
+                node = this.linkTwoTrees(node, (Node<K, V>)bucketsList[nodeRank]);
+                bucketsList[nodeRank] = null;
+                nodeRank++;
+            }
+            bucketsList[nodeRank] = node;
+            maxRank = Math.max(maxRank, nodeRank);
+            node = nodeNext;
+        }
+        this.first = null;
+        this.min = null;
+        this.numOfTrees = 0;
+        for (int i = 0; i <= maxRank; i++) { // Rebuild the root list in rank order
+            Node<K, V> root = (Node<K, V>)bucketsList[i];
+            if (root == null)
+                continue;
+            bucketsList[i] = null;
+            this.addRoot(root);
+            if (this.min == null || this.less(root, this.min))
+                this.min = root;
+        }
+    }
+
+    /**
+     * private Node<K, V> linkTwoTrees(Node<K, V> a, Node<K, V> b)
+     *
+     * Gets two trees of the same rank, and hangs the tree whose root has the larger key under the other
+     * tree. Returns the root of the new tree.
+     *
+     */
+    private Node<K, V> linkTwoTrees(Node<K, V> a, Node<K, V> b) {
+        if (this.less(b, a)) {
+            Node<K, V> temp = b;
+            b = a;
+            a = temp;
+        }
+        if (a.child == null) {
+            b.next = b;
+            b.prev = b;
+        } else {
+            Node<K, V> lastChild = a.child.prev;
+            lastChild.next = b;
+            b.prev = lastChild;
+            b.next = a.child;
+            a.child.prev = b;
+        }
+        a.child = b;
+        b.parent = a;
+        a.rank++;
+        return a;
+    }
+
+   /**
+    * public void decreaseKey(Node<K, V> x, K newKey)
+    *
+    * Replaces the key of the node x by newKey, which must not be larger than x's current key,
+    * and applies cascading cuts if needed.
+    *
+    */
+    public void decreaseKey(Node<K, V> x, K newKey) {
+        if (this.comparator.compare(newKey, x.key) > 0)
+            throw new IllegalArgumentException("New key is larger than the current key");
+        x.key = newKey;
+        if (x.parent != null && this.less(x, x.parent))
+            this.cascadingCut(x);
+        if (this.less(x, this.min))
+            this.min = x;
+    }
+
+   /**
+    * public void delete(Node<K, V> x)
+    *
+    * Deletes the node x from the heap.
+    * It is assumed that x indeed belongs to the heap.
+    *
+    */
+    public void delete(Node<K, V> x) {
+        if (x.parent != null)
+            this.cascadingCut(x);
+        this.min = x; // x is treated as minus infinity, without changing its key
+        this.deleteMin();
+    }
+
+    /**
+     * private void cascadingCut(Node<K, V> x)
+     *
+     * Cuts x from its parent, and goes on cutting the marked ancestors
+     *
+     */
+    private void cascadingCut(Node<K, V> x) {
+        Node<K, V> xParent = x.parent;
+        while (true) {
+            this.cut(x, xParent);
+            if (xParent.parent == null)
+                return;
+            if (!xParent.mark) {
+                xParent.mark = true;
+                this.nonMarked--;
+                return;
+            }
+            x = xParent;
+            xParent = x.parent;
+        }
+    }
+
+    /**
+     * private void cut(Node<K, V> x, Node<K, V> xParent)
+     *
+     * Disconnects x from xParent and makes it a root
+     *
+     */
+    private void cut(Node<K, V> x, Node<K, V> xParent) {
+        if (x.next == x) // x is xParent's only child
+            xParent.child = null;
+        else {
+            if (xParent.child == x)
+                xParent.child = x.next;
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+        }
+        xParent.rank--;
+        x.parent = null;
+        if (x.mark) {
+            x.mark = false;
+            this.nonMarked++;
+        }
+        this.addRoot(x);
+    }
+
+   /**
+    * public void meld(GenericFibonacciHeap<K, V> heap2)
+    *
+    * Melds heap2 with the current heap, and leaves heap2 empty.
+    * It is assumed that both heaps order their keys the same way.
+    *
+    */
+    public void meld(GenericFibonacciHeap<K, V> heap2) {
+        if (heap2 == this || heap2.isEmpty())
+            return;
+        this.size += heap2.size;
+        this.nonMarked += heap2.nonMarked;
+        this.addRoots(heap2.first, heap2.numOfTrees);
+        if (this.min == null || this.less(heap2.min, this.min))
+            this.min = heap2.min;
+        heap2.first = null;
+        heap2.min = null;
+        heap2.size = 0;
+        heap2.numOfTrees = 0;
+        heap2.nonMarked = 0;
+    }
+
+    /**
+     * private void addRoot(Node<K, V> node)
+     *
+     * Adds a single node to the front of the root list
+     *
+     */
+    private void addRoot(Node<K, V> node) {
+        node.next = node;
+        node.prev = node;
+        this.addRoots(node, 1);
+    }
+
+    /**
+     * private void addRoots(Node<K, V> listFirst, int count)
+     *
+     * Splices a circular list of count roots into the front of the root list
+     *
+     */
+    private void addRoots(Node<K, V> listFirst, int count) {
+        this.numOfTrees += count;
+        if (this.first != null) {
+            Node<K, V> listLast = listFirst.prev;
+            Node<K, V> last = this.first.prev;
+            last.next = listFirst;
+            listFirst.prev = last;
+            listLast.next = this.first;
+            this.first.prev = listLast;
+        }
+        this.first = listFirst;
+    }
+
+    /**
+     * private void removeRoot(Node<K, V> node)
+     *
+     * Removes node from the root list
+     *
+     */
+    private void removeRoot(Node<K, V> node) {
+        this.numOfTrees--;
+        if (node.next == node) {
+            this.first = null;
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        if (this.first == node)
+            this.first = node.next;
+    }
+
+    /**
+     * private boolean less(Node<K, V> a, Node<K, V> b)
+     *
+     * Returns true if and only if a's key is smaller than b's key
+     *
+     */
+    private boolean less(Node<K, V> a, Node<K, V> b) {
+        return this.comparator.compare(a.key, b.key) < 0;
+    }
+
+   /**
+    * public int size()
+    *
+    * Returns the number of elements in the heap.
+    *
+    */
+    public int size() {
+        return this.size;
+    }
+
+   /**
+    * public int potential()
+    *
+    * Returns the current potential of the heap: #trees + 2*#marked
+    *
+    */
+    public int potential() {
+        return this.numOfTrees + 2 * (this.size - this.nonMarked);
+    }
+
+    /**
+    * public static class Node<K, V>
+    *
+    * A node of GenericFibonacciHeap, holding a key and a value.
+    */
+    public static class Node<K, V> {
+        private K key;
+        private V value;
+        private int rank;
+        private boolean mark;
+        private Node<K, V> child;
+        private Node<K, V> next;
+        private Node<K, V> prev;
+        private Node<K, V> parent;
+
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+            this.next = this;
+            this.prev = this;
+        }
+
+        /**
+         * public K getKey()
+         *
+         * Returns node's key
+         *
+         */
+        public K getKey() {
+            return this.key;
+        }
+
+        /**
+         * public V getValue()
+         *
+         * Returns node's value
+         *
+         */
+        public V getValue() {
+            return this.value;
+        }
+
+        /**
+         * public void setValue(V value)
+         *
+         * Sets node's value. The value doesn't affect the node's position in the heap.
+         *
+         */
+        public void setValue(V value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * GraphSearch
+ *
+ * Dijkstra, A* and Prim over a CsrGraph, driven by an IndexedFibonacciHeap whose ids are the vertices,
+ * so relaxing an edge is a decreaseKeyById instead of a lookup in a map from vertices to HeapNodes.
+ *
+ * A GraphSearch is a reusable workspace: its heap and per-vertex arrays grow to the largest graph it has
+ * searched, and each query resets only the vertices the previous query reached. Repeated queries don't
+ * re-allocate, and an early-exit query costs only the part of the graph it explores. A GraphSearch must be
+ * used by one thread at a time; forCurrentThread() returns one per thread.
+ *
+ * Distances are ints. A query throws ArithmeticException if a path length overflows.
+ */
+public class GraphSearch
+{
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final ThreadLocal<GraphSearch> PER_THREAD = ThreadLocal.withInitial(GraphSearch::new);
+    private final IndexedFibonacciHeap heap = new IndexedFibonacciHeap();
+    private CsrGraph graph;
+    private int[] dist = new int[0]; // UNREACHABLE for the vertices the last query didn't reach
+    private int[] parent = new int[0];
+    private int[] reached = new int[0];
+    private int numOfReached;
+
+    /**
+     * public static GraphSearch forCurrentThread()
+     *
+     * Returns the GraphSearch of the current thread, creating it on first use.
+     *
+     */
+    public static GraphSearch forCurrentThread() {
+        return PER_THREAD.get();
+    }
+
+   /**
+    * public void shortestPaths(CsrGraph graph, int source)
+    *
+    * Runs Dijkstra from source over the whole graph. Distances and shortest-path parents can then be read
+    * with getDistance, getParent and path.
+    *
+    */
+    public void shortestPaths(CsrGraph graph, int source) {
+        this.search(graph, source, -1, null);
+    }
+
+   /**
+    * public int distance(CsrGraph graph, int source, int target)
+    *
+    * Returns the length of a shortest path from source to target, or UNREACHABLE.
+    * Dijkstra stops as soon as target is settled.
+    *
+    */
+    public int distance(CsrGraph graph, int source, int target) {
+        checkVertex(graph, target);
+        return this.search(graph, source, target, null);
+    }
+
+   /**
+    * public int distance(CsrGraph graph, int source, int target, IntUnaryOperator heuristic)
+    *
+    * Returns the length of a shortest path from source to target, or UNREACHABLE, searching with A*.
+    * heuristic maps a vertex to a lower bound of its distance to target, and must be consistent
+    * (h(u) <= weight(u, v) + h(v) for every edge), so that every vertex is settled at most once.
+    *
+    */
+    public int distance(CsrGraph graph, int source, int target, IntUnaryOperator heuristic) {
+        checkVertex(graph, target);
+        return this.search(graph, source, target, heuristic);
+    }
+
+    /**
+     * private int search(CsrGraph graph, int source, int target, IntUnaryOperator heuristic)
+     *
+     * Dijkstra (A* if heuristic isn't null) from source, stopping when target is settled (never if
+     * target is -1). The key of a vertex in the heap is its tentative distance plus its heuristic.
+     *
+     */
+    private int search(CsrGraph graph, int source, int target, IntUnaryOperator heuristic) {
+        checkVertex(graph, source);
+        this.reset(graph);
+        this.reach(source, 0, -1, (heuristic == null) ? 0 : heuristic.applyAsInt(source));
+        while (!this.heap.isEmpty()) {
+            int u = this.heap.findMinId();
+            this.heap.deleteMin();
+            int du = this.dist[u];
+            if (u == target)
+                return du;
+            for (int e = graph.edgesBegin(u), end = graph.edgesEnd(u); e < end; e++) {
+                int v = graph.target(e);
+                int dv = Math.addExact(du, graph.weight(e));
+                if (this.dist[v] == UNREACHABLE)
+                    this.reach(v, dv, u, (heuristic == null) ? dv : Math.addExact(dv, heuristic.applyAsInt(v)));
+                else if (dv < this.dist[v] && this.heap.containsId(v)) { // Settled vertices are final
+                    this.heap.decreaseKeyById(v, this.dist[v] - dv);
+                    this.dist[v] = dv;
+                    this.parent[v] = u;
+                }
+            }
+        }
+        return (target < 0) ? 0 : UNREACHABLE;
+    }
+
+   /**
+    * public long minimumSpanningForest(CsrGraph graph)
+    *
+    * Runs Prim from every vertex not reached yet, and returns the total weight of the minimum spanning
+    * forest of graph, which is assumed to be undirected. getParent(v) is then v's parent in the forest
+    * (-1 for the root of each tree) and getDistance(v) the weight of the edge to it.
+    *
+    */
+    public long minimumSpanningForest(CsrGraph graph) {
+        this.reset(graph);
+        long total = 0;
+        for (int root = 0; root < graph.numOfVertices(); root++) {
+            if (this.dist[root] != UNREACHABLE)
+                continue;
+            this.reach(root, 0, -1, 0);
+            while (!this.heap.isEmpty()) {
+                int u = this.heap.findMinId();
+                this.heap.deleteMin();
+                total += this.dist[u];
+                for (int e = graph.edgesBegin(u), end = graph.edgesEnd(u); e < end; e++) {
+                    int v = graph.target(e);
+                    int w = graph.weight(e);
+                    if (this.dist[v] == UNREACHABLE)
+                        this.reach(v, w, u, w);
+                    else if (w < this.dist[v] && this.heap.containsId(v)) { // v isn't in the forest yet
+                        this.heap.decreaseKeyById(v, this.dist[v] - w);
+                        this.dist[v] = w;
+                        this.parent[v] = u;
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+   /**
+    * public int getDistance(int v)
+    *
+    * Returns the distance of v found by the last query, or UNREACHABLE if the query didn't reach v.
+    * After an early-exit query, only the distances of the settled vertices are final.
+    *
+    */
+    public int getDistance(int v) {
+        checkVertex(this.graph, v);
+        return this.dist[v];
+    }
+
+   /**
+    * public int getParent(int v)
+    *
+    * Returns the vertex before v on the path found by the last query, or -1 for the source and for
+    * vertices the query didn't reach.
+    *
+    */
+    public int getParent(int v) {
+        checkVertex(this.graph, v);
+        return this.parent[v];
+    }
+
+   /**
+    * public int[] path(int target)
+    *
+    * Returns the vertices of the path found by the last query from its source to target, in order,
+    * or an empty array if target wasn't reached.
+    *
+    */
+    public int[] path(int target) {
+        if (this.getDistance(target) == UNREACHABLE)
+            return new int[0];
+        int length = 0;
+        for (int v = target; v != -1; v = this.parent[v])
+            length++;
+        int[] path = new int[length];
+        for (int v = target; v != -1; v = this.parent[v])
+            path[--length] = v;
+        return path;
+    }
+
+    /**
+     * private void reset(CsrGraph graph)
+     *
+     * Prepares the workspace for a query on graph: empties the heap, forgets the vertices reached by the
+     * previous query, and grows the arrays if graph is larger than every graph seen so far
+     *
+     */
+    private void reset(CsrGraph graph) {
+        this.heap.clear();
+        for (int i = 0; i < this.numOfReached; i++) {
+            this.dist[this.reached[i]] = UNREACHABLE;
+            this.parent[this.reached[i]] = -1;
+        }
+        this.numOfReached = 0;
+        int n = graph.numOfVertices();
+        if (this.dist.length < n) {
+            int oldLength = this.dist.length;
+            this.dist = Arrays.copyOf(this.dist, n);
+            this.parent = Arrays.copyOf(this.parent, n);
+            Arrays.fill(this.dist, oldLength, n, UNREACHABLE);
+            Arrays.fill(this.parent, oldLength, n, -1);
+            this.reached = new int[n];
+        }
+        this.graph = graph;
+    }
+
+    /**
+     * private void reach(int v, int d, int p, int key)
+     *
+     * Records the first path found to v, of length d through p, and inserts v into the heap with key
+     *
+     */
+    private void reach(int v, int d, int p, int key) {
+        this.reached[this.numOfReached++] = v;
+        this.dist[v] = d;
+        this.parent[v] = p;
+        this.heap.insert(v, key);
+    }
+
+    private static void checkVertex(CsrGraph graph, int v) {
+        if (graph == null)
+            throw new IllegalStateException("No query was run yet");
+        if (v < 0 || v >= graph.numOfVertices())
+            throw new IllegalArgumentException("Vertex out of range: " + v);
+    }
+}
@@ -0,0 +1,646 @@
+import java.util.Arrays;
+
+/**
+ * HandleFibonacciHeap
+ *
+ * The Fibonacci Heap algorithms shared by the heaps whose nodes are identified by int handles rather than
+ * HeapNode objects. Subclasses decide where the node fields (key, rank, mark, child/next/prev/parent links)
+ * are stored, and expose them through the accessors below. Slots of deleted nodes are recycled through a
+ * free list that is threaded through the next field.
+ */
+public abstract class HandleFibonacciHeap
+{
+    public static final int NIL = -1;
+    public static int numOfLinks;
+    public static int numOfCuts;
+    private int[] buckets = new int[0];
+    protected int freeHead = NIL;
+    protected int used;
+    protected int numOfTrees;
+    protected int min = NIL;
+    protected int first = NIL;
+    protected int size;
+    protected int nonMarked;
+
+   /**
+    * public abstract int getKey(int node)
+    *
+    * Returns the key of the node with the given handle.
+    *
+    */
+    public abstract int getKey(int node);
+
+    protected abstract void setKey(int node, int key);
+
+    protected abstract int getChild(int node);
+
+    protected abstract void setChild(int node, int child);
+
+    protected abstract int getNext(int node);
+
+    protected abstract void setNext(int node, int next);
+
+    protected abstract int getPrev(int node);
+
+    protected abstract void setPrev(int node, int prev);
+
+    protected abstract int getParent(int node);
+
+    protected abstract void setParent(int node, int parent);
+
+    protected abstract int getRank(int node);
+
+    protected abstract void setRank(int node, int rank);
+
+    protected abstract boolean isMark(int node);
+
+    protected abstract void setMark(int node, boolean mark);
+
+    /**
+     * protected abstract void ensureCapacity(int capacity)
+     *
+     * Makes sure slots 0..capacity-1 can be written
+     *
+     */
+    protected abstract void ensureCapacity(int capacity);
+
+   /**
+    * public boolean isEmpty()
+    *
+    * Returns true if and only if the heap is empty.
+    *
+    */
+    public boolean isEmpty() {
+        return this.first == NIL;
+    }
+
+   /**
+    * public int insert(int key)
+    *
+    * Creates a node which contains the given key, and inserts it into the heap.
+    *
+    * Returns the handle of the newly created node.
+    */
+    public int insert(int key) {
+        this.size++;
+        this.nonMarked++;
+        this.numOfTrees++;
+        int newNode = this.allocate(key);
+        if (this.size == 1) {  // Insertion to an empty heap
+            this.first = newNode;
+            this.min = newNode;
+            return newNode;
+        }
+        this.updateNextNode(this.getPrev(this.first), newNode); // Set new node pointers
+        this.updateNextNode(newNode, this.first);
+        this.first = newNode;
+        if (this.getKey(newNode) < this.getKey(this.min)) // Update min if necessary
+            this.min = newNode;
+        return newNode;
+    }
+
+   /**
+    * public void deleteMin()
+    *
+    * Deletes the node containing the minimum key. The handle of the deleted node may be reused by
+    * a later insert.
+    *
+    */
+    public void deleteMin() {
+        int deleted = this.min;
+        this.size--;
+        this.nonMarked--;
+        if (this.size == 0) { // Deletion from heap with 1 element
+            this.numOfTrees--;
+            this.min = NIL;
+            this.first = NIL;
+            this.release(deleted);
+            return;
+        }
+        if (this.numOfTrees == 1) { // Deletion from heap with 1 tree and size > 1
+            this.cutNodesChildrenFromParent(this.first);
+            this.first = this.getChild(this.first); // Update new first
+        }
+        else { // Deletion from heap with more than 1 trees
+            if (this.first == this.min) // Edge case: first is min
+                this.first = (this.getChild(this.first) == NIL) ?
+                        this.getNext(this.first) : this.getChild(this.first);
+            this.bypassMinNode();
+        }
+        this.release(deleted);
+        if (this.size > 1)
+            this.consolidating();
+        else { // If the heap contains only 1 node - make it min
+            this.min = this.first;
+            this.numOfTrees = 1;
+        }
+    }
+
+    /**
+     * private void cutNodesChildrenFromParent(int node)
+     *
+     * Makes all node's children roots by setting their parent to NIL and unmarking them
+     *
+     */
+    private void cutNodesChildrenFromParent(int node) {
+        int firstChild = this.getChild(node);
+        int currChild = firstChild;
+        do {
+            this.setParent(currChild, NIL);
+            if (this.isMark(currChild))
+                this.changeNodeMark(currChild);
+            currChild = this.getNext(currChild);
+        } while (currChild != firstChild);
+    }
+
+    /**
+     * private void bypassMinNode()
+     *
+     * Bypass min node (by changing the links of its prev, next and children) and thus delete min node
+     *
+     */
+    private void bypassMinNode() {
+        int node = this.min;
+        int nodeChild = this.getChild(node);
+        if (nodeChild == NIL) { // Simple bypass node without children
+            this.updateNextNode(this.getPrev(node), this.getNext(node));
+            return;
+        }
+        this.cutNodesChildrenFromParent(node);
+        int nodeLastChild = this.getPrev(nodeChild);
+        this.updateNextNode(this.getPrev(node), nodeChild); // Bypass node with at least 1 child
+        this.updateNextNode(nodeLastChild, this.getNext(node));
+    }
+
+    /**
+     * private void consolidating()
+     *
+     * Perform consolidation/successive linking process on the heap, using the heap's buckets array
+     * (which is kept filled with NIL between calls) instead of allocating a new one.
+     *
+     */
+    private void consolidating() {
+        int arrSize = FibonacciHeap.bucketsCount(this.size);
+        if (this.buckets.length < arrSize) {
+            this.buckets = new int[arrSize];
+            Arrays.fill(this.buckets, NIL);
+        }
+        int[] bucketsList = this.buckets;
+        int maxRank = 0;
+        int node = this.first;
+        do {
+            int nodeNext = this.getNext(node);
+            int nodeRank = this.getRank(node);
+            while (bucketsList[nodeRank] != NIL) { // Link as long as a tree of the same rank exists
+                node = this.linkTwoTrees(node, bucketsList[nodeRank]);
+                bucketsList[nodeRank] = NIL;
+                nodeRank++;
+            }
+            bucketsList[nodeRank] = node;
+            if (nodeRank > maxRank)
+                maxRank = nodeRank;
+            node = nodeNext;
+        } while (node != this.first);
+        this.makeHeapFromTreesArray(bucketsList, maxRank + 1);
+    }
+
+    /**
+     * private void makeHeapFromTreesArray(int[] treesArray, int length)
+     *
+     * Connect the trees in the first length cells of treesArray to form a heap, and clear these cells
+     *
+     */
+    private void makeHeapFromTreesArray(int[] treesArray, int length) {
+        int newNumOfTrees = 0;
+        int last = NIL;
+        for (int i = 0; i < length; i++) {
+            int currNode = treesArray[i];
+            if (currNode == NIL)
+                continue;
+            treesArray[i] = NIL;
+            if (this.isMark(currNode))
+                this.changeNodeMark(currNode);
+            if (last == NIL) { // First tree
+                this.first = currNode;
+                this.min = currNode;
+            } else {
+                if (this.getKey(currNode) < this.getKey(this.min))
+                    this.min = currNode;
+                this.updateNextNode(last, currNode);
+            }
+            last = currNode;
+            newNumOfTrees++;
+        }
+        this.updateNextNode(last, this.first);  // Update first tree's root prev
+        this.numOfTrees = newNumOfTrees;
+    }
+
+    /**
+     * private void changeNodeMark(int node)
+     *
+     * Swap node's mark and update nonMarked field accordingly
+     *
+     */
+    private void changeNodeMark(int node) {
+        boolean mark = this.isMark(node);
+        this.nonMarked = mark ? this.nonMarked + 1 : this.nonMarked - 1;
+        this.setMark(node, !mark);
+    }
+
+    /**
+     * private int linkTwoTrees(int a, int b)
+     *
+     * Gets as input two trees of the same rank, and generates a tree of rank bigger by one,
+     * by hanging the tree which has larger value in its root under the other tree.
+     *
+     */
+    private int linkTwoTrees(int a, int b) {
+        numOfLinks++;
+        if (this.getKey(a) > this.getKey(b)) { // If a > b then a <-> b
+            int temp = b;
+            b = a;
+            a = temp;
+        }
+        int aChild = this.getChild(a);
+        if (aChild != NIL) {
+            this.updateNextNode(this.getPrev(aChild), b);
+            this.updateNextNode(b, aChild);
+        } else
+            this.updateNextNode(b, b);
+        this.setChild(a, b);
+        this.setParent(b, a);
+        this.setRank(a, this.getRank(a) + 1);
+        return a;
+    }
+
+   /**
+    * public int findMin()
+    *
+    * Returns the handle of the node whose key is minimal, or NIL if the heap is empty.
+    *
+    */
+    public int findMin() {
+        return this.min;
+    }
+
+   /**
+    * public int[] meld(HandleFibonacciHeap heap2)
+    *
+    * Melds heap2 with the current heap, and leaves heap2 empty.
+    * heap2's nodes are copied (tree shapes included) into new slots of the current heap, in O(heap2's slots),
+    * so heap2's handles change: returns the translation table from heap2's handles to their handles in the
+    * current heap (NIL for free slots), which callers use to keep decreasing or deleting those nodes.
+    * Returns null if no handle changed (heap2 is empty or is the current heap, or a subclass took heap2's
+    * storage over as it is).
+    *
+    */
+    public int[] meld(HandleFibonacciHeap heap2) {
+        if (heap2 == this || heap2.isEmpty())  // Case 1: heap2 is empty
+            return null;
+        int[] map = this.copyNodes(heap2);
+        int heap2First = map[heap2.first];
+        int heap2Min = map[heap2.min];
+        this.size += heap2.size;
+        this.nonMarked += heap2.nonMarked;
+        this.numOfTrees += heap2.numOfTrees;
+        heap2.clear();
+        if (this.first == NIL) {  // Case 2: this is empty
+            this.first = heap2First;
+            this.min = heap2Min;
+            return map;
+        }
+        int heap2Last = this.getPrev(heap2First);  // Case 3: both this and heap2 are not empty
+        int currHeapLast = this.getPrev(this.first);
+        this.updateNextNode(heap2Last, this.first);
+        this.updateNextNode(currHeapLast, heap2First);
+        if (this.getKey(heap2Min) < this.getKey(this.min))
+            this.min = heap2Min;
+        return map;
+    }
+
+    /**
+     * private int[] copyNodes(HandleFibonacciHeap heap2)
+     *
+     * Copies all live nodes of heap2 into new slots of the current heap, keeping their links.
+     * Returns the translation table from heap2's handles to the new handles (NIL for free slots).
+     *
+     */
+    private int[] copyNodes(HandleFibonacciHeap heap2) {
+        this.ensureCapacity(this.used + heap2.size);
+        int[] map = new int[heap2.used];
+        for (int node = 0; node < heap2.used; node++) { // Pass 1: allocate a slot per live node
+            if (heap2.getRank(node) < 0) {
+                map[node] = NIL;
+                continue;
+            }
+            int copy = this.allocate(heap2.getKey(node));
+            this.setRank(copy, heap2.getRank(node));
+            this.setMark(copy, heap2.isMark(node));
+            map[node] = copy;
+        }
+        for (int node = 0; node < heap2.used; node++) { // Pass 2: translate the links
+            int copy = map[node];
+            if (copy == NIL)
+                continue;
+            int nodeChild = heap2.getChild(node);
+            int nodeParent = heap2.getParent(node);
+            this.setChild(copy, (nodeChild == NIL) ? NIL : map[nodeChild]);
+            this.setParent(copy, (nodeParent == NIL) ? NIL : map[nodeParent]);
+            this.setNext(copy, map[heap2.getNext(node)]);
+            this.setPrev(copy, map[heap2.getPrev(node)]);
+        }
+        return map;
+    }
+
+   /**
+    * public int[] relayout()
+    *
+    * Moves the nodes to slots 0..size-1 in breadth-first order: the roots first, then the children of every
+    * node in the order of their parents. Every sibling list, the root list included, then occupies
+    * consecutive slots, so the walks of deleteMin over the children of the min and over the root list read
+    * the storage sequentially instead of jumping between slots that were recycled by the free list.
+    * Links, cuts and inserts scatter the layout again, so it pays off before a run of deleteMins, e.g. after
+    * the heap was built. Takes O(size + freed slots) time and O(size) extra memory.
+    * Like meld, it changes the handles: returns the translation table from the old handles to the new ones
+    * (NIL for free slots), and the free list is emptied.
+    *
+    */
+    public int[] relayout() {
+        int[] map = new int[this.used];
+        Arrays.fill(map, NIL);
+        int[] order = new int[this.size];
+        int count = 0;
+        if (this.first != NIL) {
+            int node = this.first;
+            do {
+                order[count++] = node;
+                node = this.getNext(node);
+            } while (node != this.first);
+        }
+        for (int i = 0; i < count; i++) { // count grows as the sibling lists are appended
+            int firstChild = this.getChild(order[i]);
+            if (firstChild == NIL)
+                continue;
+            int node = firstChild;
+            do {
+                order[count++] = node;
+                node = this.getNext(node);
+            } while (node != firstChild);
+        }
+        for (int i = 0; i < count; i++)
+            map[order[i]] = i;
+        int[] keys = new int[count];
+        int[] links = new int[4 * count]; // child, next, prev and parent of every new slot
+        byte[] ranks = new byte[count];
+        boolean[] marks = new boolean[count];
+        for (int i = 0; i < count; i++) { // Read everything before the first slot is overwritten
+            int node = order[i];
+            int nodeChild = this.getChild(node);
+            int nodeParent = this.getParent(node);
+            keys[i] = this.getKey(node);
+            links[4 * i] = (nodeChild == NIL) ? NIL : map[nodeChild];
+            links[4 * i + 1] = map[this.getNext(node)];
+            links[4 * i + 2] = map[this.getPrev(node)];
+            links[4 * i + 3] = (nodeParent == NIL) ? NIL : map[nodeParent];
+            ranks[i] = (byte) this.getRank(node);
+            marks[i] = this.isMark(node);
+        }
+        for (int i = 0; i < count; i++) {
+            this.setKey(i, keys[i]);
+            this.setChild(i, links[4 * i]);
+            this.setNext(i, links[4 * i + 1]);
+            this.setPrev(i, links[4 * i + 2]);
+            this.setParent(i, links[4 * i + 3]);
+            this.setRank(i, ranks[i]);
+            this.setMark(i, marks[i]);
+        }
+        this.used = count; // The slots after the nodes are forgotten, allocate reinitializes them
+        this.freeHead = NIL;
+        if (this.first != NIL) {
+            this.first = map[this.first];
+            this.min = map[this.min];
+        }
+        return map;
+    }
+
+    /**
+     * protected void clear()
+     *
+     * Makes the heap empty. All slots become free.
+     *
+     */
+    protected void clear() {
+        this.freeHead = NIL;
+        this.used = 0;
+        this.numOfTrees = 0;
+        this.min = NIL;
+        this.first = NIL;
+        this.size = 0;
+        this.nonMarked = 0;
+    }
+
+   /**
+    * public int size()
+    *
+    * Returns the number of elements in the heap.
+    *
+    */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+    * public int[] countersRep()
+    *
+    * Return an array of counters. The i-th entry contains the number of trees of order i in the heap.
+    *
+    */
+    public int[] countersRep() {
+        if (this.size == 0)
+            return new int[0];
+        int maxRank = 0;
+        int node = this.first;
+        do {
+            maxRank = Math.max(maxRank, this.getRank(node));
+            node = this.getNext(node);
+        } while (node != this.first);
+        int[] ranksArray = new int[maxRank + 1];
+        do {
+            ranksArray[this.getRank(node)]++;
+            node = this.getNext(node);
+        } while (node != this.first);
+        return ranksArray;
+    }
+
+   /**
+    * public void delete(int x)
+    *
+    * Deletes the node x from the heap.
+    * It is assumed that x indeed belongs to the heap.
+    *
+    */
+    public void delete(int x) {
+        int xParent = this.getParent(x);
+        if (xParent != NIL)
+            this.cascadingCut(x, xParent);
+        this.min = x; // x is treated as minus infinity, without changing its key
+        this.deleteMin();
+    }
+
+   /**
+    * public void decreaseKey(int x, int delta)
+    *
+    * Decreases the key of the node x by a non-negative value delta, applying cascading cuts if needed.
+    *
+    */
+    public void decreaseKey(int x, int delta) {
+        int key = this.getKey(x) - delta;
+        this.setKey(x, key);
+        int xParent = this.getParent(x);
+        if (xParent == NIL) {
+            if (key < this.getKey(this.min))
+                this.min = x;
+            return;
+        }
+        if (this.getKey(xParent) < key) // x doesn't violate heap rules
+            return;
+        this.cascadingCut(x, xParent);
+    }
+
+    /**
+     * private void cascadingCut(int x, int xParent)
+     *
+     * Perform cascading-cut process on x and its ancestors to preserve the heap structure
+     *
+     */
+    private void cascadingCut(int x, int xParent) {
+        while (true) {
+            this.cut(x, xParent);
+            this.updateNextNode(this.getPrev(this.first), x); // Updating x to be first
+            this.updateNextNode(x, this.first);
+            this.first = x;
+            if (this.getKey(this.min) > this.getKey(x))
+                this.min = x;
+            if (this.getParent(xParent) == NIL)
+                return;
+            if (!this.isMark(xParent)) {
+                this.changeNodeMark(xParent);
+                return;
+            }
+            x = xParent;
+            xParent = this.getParent(x);
+        }
+    }
+
+    /**
+     * private void cut(int x, int xParent)
+     *
+     * Gets 2 nodes and perform simple cut between them.
+     *
+     */
+    private void cut(int x, int xParent) {
+        numOfCuts++;
+        this.numOfTrees++;
+        this.setParent(x, NIL);
+        if (this.isMark(x))
+            this.changeNodeMark(x);
+        this.setRank(xParent, this.getRank(xParent) - 1);
+        int xNext = this.getNext(x);
+        if (xNext == x) // x is xParent's only child
+            this.setChild(xParent, NIL);
+        else {
+            if (this.getChild(xParent) == x) // x is xParent's leftmost child
+                this.setChild(xParent, xNext);
+            this.updateNextNode(this.getPrev(x), xNext);
+        }
+    }
+
+   /**
+    * public int nonMarked()
+    *
+    * This function returns the current number of non-marked items in the heap
+    */
+    public int nonMarked() {
+        return this.nonMarked;
+    }
+
+   /**
+    * public int potential()
+    *
+    * This function returns the current potential of the heap, which is:
+    * Potential = #trees + 2*#marked
+    */
+    public int potential() {
+        int marked = this.size - this.nonMarked;
+        return this.numOfTrees + 2 * marked;
+    }
+
+   /**
+    * public static int totalLinks()
+    *
+    * This static function returns the total number of link operations made by all handle based heaps.
+    */
+    public static int totalLinks() {
+        return numOfLinks;
+    }
+
+   /**
+    * public static int totalCuts()
+    *
+    * This static function returns the total number of cut operations made by all handle based heaps.
+    */
+    public static int totalCuts() {
+        return numOfCuts;
+    }
+
+    /**
+     * private int allocate(int key)
+     *
+     * Takes a slot from the free list (or a new slot, growing the storage if needed) and initializes
+     * it as a single node tree with the given key
+     *
+     */
+    private int allocate(int key) {
+        int node;
+        if (this.freeHead != NIL) {
+            node = this.freeHead;
+            this.freeHead = this.getNext(node);
+        } else {
+            this.ensureCapacity(this.used + 1);
+            node = this.used++;
+        }
+        this.setKey(node, key);
+        this.setChild(node, NIL);
+        this.setParent(node, NIL);
+        this.setRank(node, 0);
+        this.setMark(node, false);
+        this.setNext(node, node);
+        this.setPrev(node, node);
+        return node;
+    }
+
+    /**
+     * private void release(int node)
+     *
+     * Returns node's slot to the free list. Free slots are recognized by a negative rank.
+     *
+     */
+    private void release(int node) {
+        this.setRank(node, -1);
+        this.setChild(node, NIL);
+        this.setParent(node, NIL);
+        this.setNext(node, this.freeHead);
+        this.freeHead = node;
+    }
+
+    /**
+     * private void updateNextNode(int node, int nextNode)
+     *
+     * Sets next of node to be nextNode and sets prev of nextNode to be node
+     *
+     */
+    private void updateNextNode(int node, int nextNode) {
+        this.setNext(node, nextNode);
+        this.setPrev(nextNode, node);
+    }
+}
@@ -0,0 +1,919 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * HeapBenchmark
+ *
+ * A micro benchmark driver for FibonacciHeap and its variants. Every workload is prepared (untimed),
+ * run a few times to warm the JIT up, and then measured over several iterations. For each workload it
+ * reports the throughput, the average time per operation, the bytes allocated per operation (by the
+ * measuring thread) and the number of GC cycles during the measured iterations.
+ *
+ * Usage: java HeapBenchmark [-n size] [-w warmupIterations] [-i measuredIterations] [workload names...]
+ */
+public class HeapBenchmark {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static long blackhole;
+
+    /**
+     * abstract static class Workload
+     *
+     * A named benchmark. prepare() builds the input of a single iteration and isn't measured,
+     * run() performs the measured operations and returns how many operations it performed.
+     */
+    abstract static class Workload {
+        final String name;
+
+        Workload(String name) {
+            this.name = name;
+        }
+
+        void prepare(int n, Random rand) {
+        }
+
+        abstract long run(int n, Random rand);
+    }
+
+    public static void main(String[] args) {
+        int n = 1 << 18;
+        int warmup = 5;
+        int iterations = 10;
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-n": n = Integer.parseInt(args[++i]); break;
+                case "-w": warmup = Integer.parseInt(args[++i]); break;
+                case "-i": iterations = Integer.parseInt(args[++i]); break;
+                default: selected.add(args[i]);
+            }
+        }
+        System.out.printf("%-32s %14s %12s %12s %6s%n", "workload", "ops/s", "ns/op", "B/op", "gc");
+        for (Workload workload : workloads()) {
+            if (selected.isEmpty() || selected.contains(workload.name))
+                measure(workload, n, warmup, iterations);
+        }
+        if (blackhole == 42)
+            System.out.println();
+    }
+
+    /**
+     * static List<Workload> workloads()
+     *
+     * Returns all the workloads, in the order they are run.
+     */
+    static List<Workload> workloads() {
+        List<Workload> workloads = new ArrayList<>();
+        workloads.add(new Workload("insert") {
+            long run(int n, Random rand) {
+                FibonacciHeap heap = new FibonacciHeap();
+                for (int i = 0; i < n; i++)
+                    heap.insert(rand.nextInt());
+                blackhole += heap.findMin().getKey();
+                return n;
+            }
+        });
+        workloads.add(new Workload("insertAll") {
+            int[] keys;
+
+            void prepare(int n, Random rand) {
+                this.keys = rand.ints(n).toArray();
+            }
+
+            long run(int n, Random rand) {
+                FibonacciHeap heap = new FibonacciHeap();
+                heap.insertAll(this.keys);
+                blackhole += heap.findMin().getKey();
+                return n;
+            }
+        });
+        workloads.add(new Workload("firstDeleteMin") {
+            FibonacciHeap heap;
+
+            void prepare(int n, Random rand) {
+                this.heap = randomHeap(n, rand);
+            }
+
+            long run(int n, Random rand) {
+                this.heap.deleteMin();
+                blackhole += this.heap.findMin().getKey();
+                return 1;
+            }
+        });
+        workloads.add(new Workload("deleteMin") {
+            FibonacciHeap heap;
+
+            void prepare(int n, Random rand) {
+                this.heap = randomHeap(n, rand);
+            }
+
+            long run(int n, Random rand) {
+                for (int i = 0; i < n; i++)
+                    this.heap.deleteMin();
+                return n;
+            }
+        });
+        workloads.add(new Workload("dijkstraMix") {
+            FibonacciHeap heap;
+            FibonacciHeap.HeapNode[] nodes;
+            boolean[] deleted;
+
+            void prepare(int n, Random rand) {
+                this.heap = new FibonacciHeap();
+                this.nodes = new FibonacciHeap.HeapNode[n];
+                this.deleted = new boolean[n];
+                for (int id = 0; id < n; id++) // Keys are congruent to their id modulo n, so ids are recoverable
+                    this.nodes[id] = this.heap.insert(rand.nextInt(1 << 10) * n + id);
+            }
+
+            long run(int n, Random rand) {
+                long ops = 0;
+                while (!this.heap.isEmpty()) {
+                    int id = Math.floorMod(this.heap.findMin().getKey(), n);
+                    this.heap.deleteMin();
+                    this.deleted[id] = true;
+                    ops++;
+                    for (int j = 0; j < 4; j++) { // Relax a few random edges
+                        int other = rand.nextInt(n);
+                        if (!this.deleted[other]) {
+                            this.heap.decreaseKey(this.nodes[other], rand.nextInt(4) * n);
+                            ops++;
+                        }
+                    }
+                }
+                return ops;
+            }
+        });
+        workloads.add(new Workload("meld") {
+            FibonacciHeap heap;
+            FibonacciHeap heap2;
+
+            void prepare(int n, Random rand) {
+                this.heap = randomHeap(n / 2, rand);
+                this.heap2 = randomHeap(n / 2, rand);
+                this.heap.deleteMin();
+                this.heap2.deleteMin();
+            }
+
+            long run(int n, Random rand) {
+                this.heap.meld(this.heap2);
+                this.heap.deleteMin();
+                blackhole += this.heap.findMin().getKey();
+                return 1;
+            }
+        });
+        for (int k : new int[] {1, 16, 256, 4096}) {
+            workloads.add(new Workload("kMin" + k) {
+                FibonacciHeap heap;
+
+                void prepare(int n, Random rand) {
+                    int treeSize = Integer.highestOneBit(Math.max(n, k));
+                    this.heap = randomHeap(treeSize + 1, rand);
+                    this.heap.deleteMin(); // Leaves a single binomial tree
+                }
+
+                long run(int n, Random rand) {
+                    blackhole += FibonacciHeap.kMin(this.heap, k)[k - 1];
+                    return k;
+                }
+            });
+        }
+        workloads.add(new Workload("cascadingCuts") {
+            long run(int n, Random rand) {
+                FibonacciHeap heap = new FibonacciHeap();
+                int m = Integer.highestOneBit(n);
+                FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[m + 1];
+                for (int k = m - 1; k > -2; k--) // The adversarial pattern of Tester.main
+                    nodes[k + 1] = heap.insert(k);
+                heap.deleteMin();
+                int log = Integer.numberOfTrailingZeros(m);
+                for (int j = log; j > 0; j--)
+                    heap.decreaseKey(nodes[m - (1 << j) + 2], m + 1);
+                blackhole += heap.potential();
+                return m + 1 + log;
+            }
+        });
+        workloads.add(new Workload("concurrentInsertPoll") {
+            long run(int n, Random rand) {
+                ConcurrentFibonacciHeap heap = new ConcurrentFibonacciHeap();
+                int numOfThreads = Runtime.getRuntime().availableProcessors();
+                Thread[] producers = new Thread[numOfThreads];
+                for (int t = 0; t < numOfThreads; t++) {
+                    producers[t] = new Thread(() -> {
+                        java.util.concurrent.ThreadLocalRandom threadRand =
+                                java.util.concurrent.ThreadLocalRandom.current();
+                        for (int i = 0; i < n / numOfThreads; i++)
+                            heap.insert(threadRand.nextInt());
+                    });
+                    producers[t].start();
+                }
+                for (Thread producer : producers) {
+                    try {
+                        producer.join();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                long ops = heap.size();
+                while (heap.poll() != null)
+                    ops++;
+                return ops;
+            }
+        });
+        workloads.add(new Workload("multiQueueInsertDeleteMin") {
+            long run(int n, Random rand) {
+                MultiQueueFibonacciHeap heap = new MultiQueueFibonacciHeap();
+                int numOfThreads = Runtime.getRuntime().availableProcessors();
+                Thread[] workers = new Thread[numOfThreads];
+                for (int t = 0; t < numOfThreads; t++) {
+                    workers[t] = new Thread(() -> {
+                        java.util.concurrent.ThreadLocalRandom threadRand =
+                                java.util.concurrent.ThreadLocalRandom.current();
+                        for (int i = 0; i < n / numOfThreads; i++) {
+                            heap.insert(threadRand.nextInt());
+                            if ((i & 1) == 1)
+                                heap.deleteMin();
+                        }
+                    });
+                    workers[t].start();
+                }
+                for (Thread worker : workers) {
+                    try {
+                        worker.join();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return (long) numOfThreads * (n / numOfThreads) * 3 / 2;
+            }
+        });
+        workloads.add(new Workload("topK16ManyTrees") {
+            FibonacciHeap heap;
+
+            void prepare(int n, Random rand) {
+                this.heap = randomHeap(n, rand);
+                this.heap.deleteMin();
+                for (int i = 0; i < n / 4; i++) // Leaves roots of several ranks
+                    this.heap.insert(rand.nextInt());
+            }
+
+            long run(int n, Random rand) {
+                blackhole += this.heap.topK(16)[15];
+                return 16;
+            }
+        });
+        workloads.add(new Workload("deepCascadingCut") {
+            FibonacciHeap heap;
+            FibonacciHeap.HeapNode bottom;
+
+            void prepare(int n, Random rand) {
+                this.heap = new FibonacciHeap();
+                this.bottom = markedChain(this.heap, n);
+            }
+
+            long run(int n, Random rand) {
+                this.heap.decreaseKey(this.bottom, this.bottom.getKey()); // Cuts the whole chain
+                blackhole += this.heap.potential();
+                return n + 1;
+            }
+        });
+        for (boolean batched : new boolean[] {false, true}) {
+            workloads.add(new Workload(batched ? "relaxBatched" : "relaxSequential") {
+                FibonacciHeap heap;
+                FibonacciHeap.HeapNode[] nodes;
+                int[] deltas;
+
+                void prepare(int n, Random rand) {
+                    this.heap = new FibonacciHeap();
+                    FibonacciHeap.HeapNode[] all = new FibonacciHeap.HeapNode[n];
+                    for (int i = 0; i < n; i++)
+                        all[i] = this.heap.insert(rand.nextInt(1 << 30));
+                    FibonacciHeap.HeapNode deleted = this.heap.findMin();
+                    this.heap.deleteMin(); // The remaining nodes are in trees, so relaxations cut
+                    this.nodes = new FibonacciHeap.HeapNode[n / 4];
+                    this.deltas = new int[n / 4];
+                    for (int i = 0; i < this.nodes.length; i++) { // Distinct nodes, none of them deleted
+                        int j = 4 * i + rand.nextInt(4);
+                        if (all[j] == deleted)
+                            j ^= 1;
+                        this.nodes[i] = all[j];
+                        this.deltas[i] = rand.nextInt(1 << 28);
+                    }
+                }
+
+                long run(int n, Random rand) {
+                    if (batched)
+                        this.heap.decreaseKeys(this.nodes, this.deltas);
+                    else
+                        for (int i = 0; i < this.nodes.length; i++)
+                            this.heap.decreaseKey(this.nodes[i], this.deltas[i]);
+                    blackhole += this.heap.findMin().getKey();
+                    return this.nodes.length;
+                }
+            });
+        }
+        workloads.add(new RoadWorkload("dijkstraRoadFibonacci") {
+            long run(int n, Random rand) {
+                GraphSearch search = GraphSearch.forCurrentThread();
+                search.shortestPaths(this.graph, rand.nextInt(this.graph.numOfVertices()));
+                blackhole += search.getDistance(0);
+                return this.graph.numOfEdges();
+            }
+        });
+        workloads.add(new RoadWorkload("dijkstraRoadBinary") {
+            int[] dist;
+            long[] queue;
+
+            long run(int n, Random rand) {
+                if (this.dist == null || this.dist.length != this.graph.numOfVertices()) {
+                    this.dist = new int[this.graph.numOfVertices()];
+                    this.queue = new long[this.graph.numOfEdges() + 1];
+                }
+                dijkstraBinaryHeap(this.graph, rand.nextInt(this.graph.numOfVertices()), this.dist, this.queue);
+                blackhole += this.dist[0];
+                return this.graph.numOfEdges();
+            }
+        });
+        workloads.add(new RoadWorkload("pointToPointRoadDijkstra") {
+            long run(int n, Random rand) {
+                int numOfVertices = this.graph.numOfVertices();
+                blackhole += GraphSearch.forCurrentThread().distance(this.graph,
+                        rand.nextInt(numOfVertices), rand.nextInt(numOfVertices));
+                return 1;
+            }
+        });
+        workloads.add(new RoadWorkload("pointToPointRoadAStar") {
+            long run(int n, Random rand) {
+                int numOfVertices = this.graph.numOfVertices();
+                int target = rand.nextInt(numOfVertices);
+                blackhole += GraphSearch.forCurrentThread().distance(this.graph, rand.nextInt(numOfVertices),
+                        target, CsrGraph.manhattanHeuristic(target, this.width, 100));
+                return 1;
+            }
+        });
+        workloads.add(new RoadWorkload("primRoadFibonacci") {
+            long run(int n, Random rand) {
+                blackhole += GraphSearch.forCurrentThread().minimumSpanningForest(this.graph);
+                return this.graph.numOfEdges();
+            }
+        });
+        for (HeapSelector.Candidate<?, ?> candidate : HeapSelector.defaultCandidates()) {
+            workloads.add(new RoadWorkload("dijkstraTrace-" + candidate.getName()) {
+                HeapTrace trace;
+                CsrGraph traced;
+
+                void prepare(int n, Random rand) {
+                    super.prepare(n, rand);
+                    if (this.traced != this.graph) {
+                        this.trace = HeapSelector.dijkstraTrace(this.graph);
+                        this.traced = this.graph;
+                    }
+                }
+
+                long run(int n, Random rand) {
+                    blackhole += candidate.replay(this.trace);
+                    return this.trace.length();
+                }
+            });
+        }
+        workloads.add(new Workload("restoreByReinsert") {
+            int[] keys;
+
+            void prepare(int n, Random rand) {
+                this.keys = new int[n];
+                for (int i = 0; i < n; i++)
+                    this.keys[i] = rand.nextInt();
+            }
+
+            long run(int n, Random rand) {
+                FibonacciHeap heap = new FibonacciHeap();
+                heap.insertAll(this.keys);
+                heap.deleteMin();
+                blackhole += heap.findMin().getKey();
+                return n;
+            }
+        });
+        workloads.add(new Workload("restoreFromSnapshot") {
+            ByteBuffer snapshot;
+
+            void prepare(int n, Random rand) {
+                FibonacciHeap heap = randomHeap(n + 1, rand);
+                heap.deleteMin();
+                this.snapshot = HeapSnapshot.toByteBuffer(heap);
+            }
+
+            long run(int n, Random rand) {
+                FibonacciHeap heap;
+                try {
+                    heap = HeapSnapshot.read(this.snapshot.duplicate(), HeapMetrics.NOOP);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                heap.deleteMin();
+                blackhole += heap.findMin().getKey();
+                return n;
+            }
+        });
+        for (boolean radix : new boolean[] {false, true}) {
+            String engine = radix ? "radix" : "consolidating";
+            workloads.add(new Workload("deleteMinMonotone-" + engine) {
+                FibonacciHeap heap;
+
+                void prepare(int n, Random rand) {
+                    this.heap = radix ? new MonotoneFibonacciHeap(MonotoneFibonacciHeap.Mode.STRICT)
+                            : new FibonacciHeap();
+                    for (int i = 0; i < n; i++)
+                        this.heap.insert(rand.nextInt(Integer.MAX_VALUE));
+                }
+
+                long run(int n, Random rand) {
+                    for (int i = 0; i < n; i++)
+                        this.heap.deleteMin();
+                    return n;
+                }
+            });
+            workloads.add(new Workload("eventSimulation-" + engine) {
+                FibonacciHeap heap;
+
+                void prepare(int n, Random rand) {
+                    this.heap = radix ? new MonotoneFibonacciHeap(MonotoneFibonacciHeap.Mode.STRICT)
+                            : new FibonacciHeap();
+                    for (int i = 0; i < 1024; i++) // The pending events
+                        this.heap.insert(rand.nextInt(1 << 16));
+                }
+
+                long run(int n, Random rand) {
+                    for (int i = 0; i < n; i++) { // Each event schedules one later event
+                        int now = this.heap.findMin().getKey();
+                        this.heap.deleteMin();
+                        this.heap.insert(now + 1 + rand.nextInt(1 << 16));
+                    }
+                    return 2L * n;
+                }
+            });
+        }
+        for (int budget : new int[] {0, 4}) {
+            workloads.add(new Workload("insertBurstDeleteMin-budget" + budget) {
+                FibonacciHeap heap;
+
+                void prepare(int n, Random rand) {
+                    this.heap = new FibonacciHeap();
+                    this.heap.setConsolidationBudget(budget);
+                }
+
+                long run(int n, Random rand) { // Bursts of inserts, each followed by a few deleteMins
+                    int burst = Math.max(n / 16, 1);
+                    for (int done = 0; done < n; done += burst) {
+                        for (int i = 0; i < burst; i++)
+                            this.heap.insert(rand.nextInt());
+                        for (int i = 0; i < 4; i++)
+                            this.heap.deleteMin();
+                    }
+                    blackhole += this.heap.findMin().getKey();
+                    return n;
+                }
+            });
+        }
+        for (String build : new String[] {"insertAll", "linked", "parallel"}) {
+            workloads.add(new Workload("bulkBuildDeleteMin-" + build) {
+                int[] keys;
+
+                void prepare(int n, Random rand) {
+                    this.keys = new int[n];
+                    for (int i = 0; i < n; i++)
+                        this.keys[i] = rand.nextInt();
+                }
+
+                long run(int n, Random rand) { // Build, then the first deleteMin consolidates
+                    FibonacciHeap heap = new FibonacciHeap();
+                    if (build.equals("insertAll"))
+                        heap.insertAll(this.keys);
+                    else {
+                        if (build.equals("parallel"))
+                            heap.setParallelConsolidation(ForkJoinPool.commonPool(), 1);
+                        heap.insertAllLinked(this.keys, null);
+                    }
+                    heap.deleteMin();
+                    blackhole += heap.findMin().getKey();
+                    return n;
+                }
+            });
+        }
+        for (boolean parallel : new boolean[] {false, true}) {
+            workloads.add(new Workload("consolidateRoots-" + (parallel ? "parallel" : "sequential")) {
+                int[] keys;
+
+                void prepare(int n, Random rand) {
+                    this.keys = new int[n];
+                    for (int i = 0; i < n; i++)
+                        this.keys[i] = rand.nextInt();
+                }
+
+                long run(int n, Random rand) {
+                    FibonacciHeap heap = new FibonacciHeap();
+                    if (parallel)
+                        heap.setParallelConsolidation(ForkJoinPool.commonPool());
+                    heap.insertAll(this.keys);
+                    heap.deleteMin();
+                    blackhole += heap.findMin().getKey();
+                    return n;
+                }
+            });
+        }
+        workloads.add(new Workload("shardMeldSplit") {
+            FibonacciHeap[] shards;
+
+            void prepare(int n, Random rand) {
+                this.shards = new FibonacciHeap[64];
+                for (int i = 0; i < this.shards.length; i++) {
+                    this.shards[i] = randomHeap(Math.max(n / this.shards.length, 2), rand);
+                    this.shards[i].deleteMin();
+                }
+            }
+
+            long run(int n, Random rand) { // Move a shard's contents into another, then split part back
+                int steps = Math.max(n / 64, 1);
+                for (int step = 0; step < steps; step++) {
+                    int from = rand.nextInt(this.shards.length);
+                    int to = (from + 1 + rand.nextInt(this.shards.length - 1)) % this.shards.length;
+                    this.shards[to].meld(this.shards[from]);
+                    this.shards[from] = this.shards[to].split(rand.nextInt());
+                }
+                blackhole += this.shards[0].size();
+                return steps;
+            }
+        });
+        for (boolean wheel : new boolean[] {false, true}) {
+            String scheduler = wheel ? "wheel" : "heap";
+            workloads.add(new DeadlineWorkload("deadlineSchedule-" + scheduler, wheel) {
+                long run(int n, Random rand) {
+                    for (int i = 0; i < n; i++)
+                        this.schedule(i);
+                    return n;
+                }
+            });
+            workloads.add(new DeadlineWorkload("deadlineCancel-" + scheduler, wheel) {
+                void prepare(int n, Random rand) {
+                    super.prepare(n, rand);
+                    for (int i = 0; i < n; i++)
+                        this.schedule(i);
+                }
+
+                long run(int n, Random rand) {
+                    for (int i = 0; i < n; i++)
+                        this.cancel(this.order[i]);
+                    return n;
+                }
+            });
+            workloads.add(new DeadlineWorkload("deadlinePoll-" + scheduler, wheel) {
+                void prepare(int n, Random rand) {
+                    super.prepare(n, rand);
+                    for (int i = 0; i < n; i++)
+                        this.schedule(i);
+                }
+
+                long run(int n, Random rand) {
+                    long polled = 0;
+                    for (int time = 0; time <= DEADLINE_SPAN; time++)
+                        polled += this.pollUntil(time);
+                    return polled;
+                }
+            });
+            workloads.add(new DeadlineWorkload("deadlineMix-" + scheduler, wheel) {
+                long run(int n, Random rand) { // Every ms: 8 timers scheduled, 7 cancelled before they fire
+                    long ops = 0;
+                    for (int i = 0; i < n; i++) {
+                        this.schedule(i);
+                        if (i % 8 == 7) {
+                            for (int j = i - 7; j < i; j++)
+                                this.cancel(j);
+                            ops += 8 + this.pollUntil(this.time + 1);
+                        }
+                    }
+                    return ops;
+                }
+            });
+        }
+        for (boolean lazy : new boolean[] {false, true}) {
+            workloads.add(new Workload("cancelHeavy-" + (lazy ? "cancel" : "delete")) {
+                FibonacciHeap heap;
+                FibonacciHeap.HeapNode[] pending;
+
+                void prepare(int n, Random rand) {
+                    this.heap = new FibonacciHeap();
+                    int[] keys = new int[n];
+                    for (int i = 0; i < n; i++)
+                        keys[i] = rand.nextInt(Integer.MAX_VALUE);
+                    this.pending = new FibonacciHeap.HeapNode[n];
+                    this.heap.insertAll(keys, this.pending, true);
+                }
+
+                long run(int n, Random rand) { // Most timeouts are cancelled and replaced, 1 in 8 expires
+                    for (int i = 0; i < n; i++) {
+                        int j = rand.nextInt(n);
+                        if (!this.heap.contains(this.pending[j])) // Expired by deleteMin
+                            continue;
+                        if (lazy)
+                            this.heap.cancel(this.pending[j]);
+                        else
+                            this.heap.delete(this.pending[j]);
+                        this.pending[j] = this.heap.insert(rand.nextInt(Integer.MAX_VALUE));
+                        if (i % 8 == 7)
+                            this.heap.deleteMin();
+                    }
+                    blackhole += this.heap.findMin().getKey();
+                    return 2L * n;
+                }
+            });
+        }
+        for (boolean relayout : new boolean[] {false, true}) {
+            workloads.add(new Workload("arrayDeleteMin-" + (relayout ? "relayout" : "scattered")) {
+                ArrayFibonacciHeap heap;
+
+                void prepare(int n, Random rand) { // Linking by key scatters every sibling list over the slots
+                    this.heap = new ArrayFibonacciHeap(n);
+                    for (int i = 0; i < n; i++)
+                        this.heap.insert(rand.nextInt());
+                    this.heap.deleteMin();
+                    if (relayout)
+                        this.heap.relayout();
+                }
+
+                long run(int n, Random rand) {
+                    long ops = 0;
+                    while (!this.heap.isEmpty()) {
+                        this.heap.deleteMin();
+                        ops++;
+                    }
+                    return ops;
+                }
+            });
+        }
+        return workloads;
+    }
+
+    /**
+     * abstract static class DeadlineWorkload
+     *
+     * Deadlines in the next DEADLINE_SPAN ms, one in 16 of them up to 2^24 ms ahead, scheduled in a
+     * TimerWheel or directly in a FibonacciHeap (where cancel is delete and poll is deleteMin).
+     */
+    abstract static class DeadlineWorkload extends Workload {
+        static final int DEADLINE_SPAN = 5000;
+        final boolean wheel;
+        int[] deadlines;
+        int[] order;
+        FibonacciHeap heap;
+        FibonacciHeap.HeapNode[] nodes;
+        TimerWheel timerWheel;
+        TimerWheel.Timer[] timers;
+        int time;
+
+        DeadlineWorkload(String name, boolean wheel) {
+            super(name);
+            this.wheel = wheel;
+        }
+
+        void prepare(int n, Random rand) {
+            this.deadlines = new int[n];
+            this.order = new int[n];
+            for (int i = 0; i < n; i++) {
+                this.deadlines[i] = 1 + rand.nextInt((i % 16 == 15) ? 1 << 24 : DEADLINE_SPAN);
+                this.order[i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) { // Cancels happen in random order
+                int j = rand.nextInt(i + 1);
+                int swap = this.order[i];
+                this.order[i] = this.order[j];
+                this.order[j] = swap;
+            }
+            this.heap = new FibonacciHeap();
+            this.nodes = new FibonacciHeap.HeapNode[n];
+            this.timerWheel = new TimerWheel(0);
+            this.timers = new TimerWheel.Timer[n];
+            this.time = 0;
+        }
+
+        void schedule(int i) {
+            int deadline = this.time + this.deadlines[i];
+            if (this.wheel)
+                this.timers[i] = this.timerWheel.schedule(deadline, i);
+            else
+                this.nodes[i] = this.heap.insert(deadline);
+        }
+
+        void cancel(int i) {
+            if (this.wheel)
+                this.timerWheel.cancel(this.timers[i]);
+            else if (this.heap.contains(this.nodes[i]))
+                this.heap.delete(this.nodes[i]);
+        }
+
+        int pollUntil(int time) {
+            this.time = time;
+            int polled = 0;
+            if (this.wheel) {
+                while (this.timerWheel.poll(time) != null)
+                    polled++;
+            } else {
+                while (!this.heap.isEmpty() && this.heap.findMin().getKey() <= time) {
+                    this.heap.deleteMin();
+                    polled++;
+                }
+            }
+            return polled;
+        }
+    }
+
+    /**
+     * abstract static class RoadWorkload
+     *
+     * A workload on a road-like grid graph of about n vertices, built once for each n.
+     */
+    abstract static class RoadWorkload extends Workload {
+        CsrGraph graph;
+        int width;
+
+        RoadWorkload(String name) {
+            super(name);
+        }
+
+        void prepare(int n, Random rand) {
+            int width = (int) Math.sqrt(n);
+            if (this.graph == null || this.width != width) {
+                this.width = width;
+                this.graph = CsrGraph.roadLikeGrid(width, width, 100, new Random(n));
+            }
+        }
+    }
+
+    /**
+     * static void dijkstraBinaryHeap(CsrGraph graph, int source, int[] dist, long[] queue)
+     *
+     * Dijkstra with a binary heap and lazy deletion, the usual alternative to decreaseKey: queue entries
+     * are (distance << 32 | vertex), and an entry is skipped if its vertex was settled with a shorter
+     * distance. queue needs room for numOfEdges + 1 entries.
+     */
+    static void dijkstraBinaryHeap(CsrGraph graph, int source, int[] dist, long[] queue) {
+        java.util.Arrays.fill(dist, Integer.MAX_VALUE);
+        dist[source] = 0;
+        queue[0] = source;
+        int size = 1;
+        while (size > 0) {
+            long top = queue[0];
+            long last = queue[--size];
+            int i = 0;
+            while (2 * i + 1 < size) { // Sift last down from the root
+                int child = 2 * i + 1;
+                if (child + 1 < size && queue[child + 1] < queue[child])
+                    child++;
+                if (last <= queue[child])
+                    break;
+                queue[i] = queue[child];
+                i = child;
+            }
+            queue[i] = last;
+            int u = (int) top;
+            int du = (int) (top >>> 32);
+            if (du > dist[u])
+                continue;
+            for (int e = graph.edgesBegin(u), end = graph.edgesEnd(u); e < end; e++) {
+                int v = graph.target(e);
+                int dv = du + graph.weight(e);
+                if (dv < dist[v]) {
+                    dist[v] = dv;
+                    long entry = (long) dv << 32 | v;
+                    int j = size++;
+                    while (j > 0 && queue[(j - 1) >>> 1] > entry) { // Sift up
+                        queue[j] = queue[(j - 1) >>> 1];
+                        j = (j - 1) >>> 1;
+                    }
+                    queue[j] = entry;
+                }
+            }
+        }
+    }
+
+    /**
+     * static FibonacciHeap.HeapNode markedChain(FibonacciHeap heap, int depth)
+     *
+     * Fills an empty heap with a single tree holding a path of depth marked nodes, and returns the node
+     * under the deepest marked node, so that decreasing its key cascades depth + 1 cuts. Every step
+     * hangs the current tree under a new root, then deletes a leaf of the old root to mark it.
+     * Keys are positive.
+     */
+    static FibonacciHeap.HeapNode markedChain(FibonacciHeap heap, int depth) {
+        int key = Integer.MAX_VALUE;
+        for (int i = 0; i < 5; i++)
+            heap.insert(key--);
+        heap.deleteMin(); // A binomial tree of rank 2: root, a child with a child, and a leaf
+        FibonacciHeap.HeapNode top = heap.findMin();
+        FibonacciHeap.HeapNode bottom = null;
+        FibonacciHeap.HeapNode leaf = null;
+        FibonacciHeap.HeapNode child = top.getChild();
+        do {
+            if (child.getChild() == null)
+                leaf = child;
+            else
+                bottom = child;
+            child = child.getNext();
+        } while (child != top.getChild());
+        for (int i = 0; i < depth; i++) {
+            for (int j = 0; j < 5; j++)
+                heap.insert(key--);
+            heap.deleteMin(); // Links the 4 remaining new keys into a rank 2 tree, and top under its root
+            heap.delete(leaf); // Marks top
+            FibonacciHeap.HeapNode newTop = heap.findMin();
+            List<FibonacciHeap.HeapNode> extra = new ArrayList<>();
+            child = newTop.getChild();
+            do {
+                if (child != top)
+                    addSubtree(child, extra);
+                child = child.getNext();
+            } while (child != newTop.getChild());
+            leaf = extra.remove(extra.size() - 1); // A child of newTop, kept as its next leaf
+            for (FibonacciHeap.HeapNode node : extra) // Children before parents, so only leaves are deleted
+                heap.delete(node);
+            top = newTop;
+        }
+        return bottom;
+    }
+
+    /**
+     * static void addSubtree(FibonacciHeap.HeapNode node, List<FibonacciHeap.HeapNode> nodes)
+     *
+     * Adds the nodes of node's subtree to nodes in post-order.
+     */
+    static void addSubtree(FibonacciHeap.HeapNode node, List<FibonacciHeap.HeapNode> nodes) {
+        FibonacciHeap.HeapNode child = node.getChild();
+        if (child != null) {
+            do {
+                addSubtree(child, nodes);
+                child = child.getNext();
+            } while (child != node.getChild());
+        }
+        nodes.add(node);
+    }
+
+    /**
+     * static FibonacciHeap randomHeap(int n, Random rand)
+     *
+     * Returns a heap of n random keys, that was never consolidated.
+     */
+    static FibonacciHeap randomHeap(int n, Random rand) {
+        FibonacciHeap heap = new FibonacciHeap();
+        for (int i = 0; i < n; i++)
+            heap.insert(rand.nextInt());
+        return heap;
+    }
+
+    /**
+     * static void measure(Workload workload, int n, int warmup, int iterations)
+     *
+     * Runs the workload and prints its throughput, time per operation, allocation per operation and GC count.
+     */
+    static void measure(Workload workload, int n, int warmup, int iterations) {
+        Random rand = new Random(42);
+        for (int i = 0; i < warmup; i++) {
+            workload.prepare(n, rand);
+            workload.run(n, rand);
+        }
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        long gcCount = 0;
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < iterations; i++) {
+            workload.prepare(n, rand);
+            long gcBefore = gcCount();
+            long bytesBefore = THREAD_BEAN.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            ops += workload.run(n, rand);
+            nanos += System.nanoTime() - start;
+            bytes += THREAD_BEAN.getThreadAllocatedBytes(threadId) - bytesBefore;
+            gcCount += gcCount() - gcBefore;
+        }
+        System.out.printf("%-32s %14.0f %12.1f %12.1f %6d%n", workload.name,
+                ops * 1e9 / nanos, (double) nanos / ops, (double) bytes / ops, gcCount);
+    }
+
+    /**
+     * static long gcCount()
+     *
+     * Returns the total number of collections made by all the garbage collectors so far.
+     */
+    static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(gc.getCollectionCount(), 0);
+        return count;
+    }
+}
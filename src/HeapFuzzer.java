@@ -0,0 +1,434 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * HeapFuzzer
+ *
+ * Seeded randomized stress test of FibonacciHeap. Every run generates a sequence of mixed operations (insert,
+ * insertAll, deleteMin, decreaseKey, delete, cancel, meld, split, compact, purge, topK) and applies it to a
+ * heap and to a java.util.PriorityQueue holding the same keys: after every operation the sizes and minimal
+ * keys must agree, and every checkPeriod operations the heap must pass checkInvariants.
+ *
+ * A failing run is shrunk by removing chunks of operations (halves, quarters, ... single operations) as
+ * long as the rest still fails, and the shrunk trace is printed with the seed that reproduces the run.
+ * Operations only refer to handles by position (modulo the number of live handles), so any subsequence of
+ * a trace can be replayed.
+ *
+ * Usage: java HeapFuzzer [-s seed] [-r runs] [-n operationsPerRun] [-c checkPeriod] [configurations...]
+ * where the configurations are those of configurations() (all of them by default).
+ * Exits with status 1 if a run failed.
+ */
+public class HeapFuzzer
+{
+    private static final int INSERT = 0;
+    private static final int INSERT_ALL = 1;
+    private static final int DELETE_MIN = 2;
+    private static final int DECREASE_KEY = 3;
+    private static final int DELETE = 4;
+    private static final int CANCEL = 5;
+    private static final int MELD = 6;
+    private static final int SPLIT = 7;
+    private static final int COMPACT = 8;
+    private static final int PURGE = 9;
+    private static final int TOP_K = 10;
+    private static final String[] OPERATION_NAMES = {"insert", "insertAll", "deleteMin", "decreaseKey", "delete",
+            "cancel", "meld", "split", "compact", "purge", "topK"};
+    private static final int[] WEIGHTS = {34, 3, 14, 20, 5, 12, 3, 2, 3, 1, 3}; // Out of 100, by operation
+    private static final int KEY_RANGE = 1 << 10; // Small enough for many equal keys
+    private static final int MAX_DELTA = 64;
+    private static final int TARGET_SIZE = 512; // Above it, inserts are replaced by deleteMins
+    private static final int MAX_SHRINK_REPLAYS = 20000;
+
+    public static void main(String[] args) {
+        long seed = 1;
+        int runs = 100;
+        int operations = 10000;
+        int checkPeriod = 16;
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-s": seed = Long.parseLong(args[++i]); break;
+                case "-r": runs = Integer.parseInt(args[++i]); break;
+                case "-n": operations = Integer.parseInt(args[++i]); break;
+                case "-c": checkPeriod = Integer.parseInt(args[++i]); break;
+                default: selected.add(args[i]);
+            }
+        }
+        boolean failed = false;
+        for (Map.Entry<String, Supplier<FibonacciHeap>> configuration : configurations().entrySet()) {
+            if (!selected.isEmpty() && !selected.contains(configuration.getKey()))
+                continue;
+            long start = System.nanoTime();
+            int run = 0;
+            for (; run < runs; run++) {
+                List<Operation> trace = generate(new Random(seed + run), operations);
+                Failure failure = replay(trace, configuration.getValue(), checkPeriod);
+                if (failure != null) {
+                    report(configuration.getKey(), seed + run, trace, failure, configuration.getValue());
+                    failed = true;
+                    break;
+                }
+            }
+            System.out.printf("%-14s %4d runs %10d operations %8.1f s %s%n", configuration.getKey(), run,
+                    (long) run * operations, (System.nanoTime() - start) / 1e9, (run == runs) ? "ok" : "FAILED");
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * static Map<String, Supplier<FibonacciHeap>> configurations()
+     *
+     * Returns the heap configurations to fuzz, by name: the default heap, incremental consolidation with
+     * budgets 4 and 1, parallel consolidation of small root lists, an eager purge of cancelled nodes, and
+     * MonotoneFibonacciHeap in Mode.DETECT (which leaves the radix engine on the first decreasing key).
+     */
+    static Map<String, Supplier<FibonacciHeap>> configurations() {
+        Map<String, Supplier<FibonacciHeap>> configurations = new LinkedHashMap<>();
+        configurations.put("default", FibonacciHeap::new);
+        configurations.put("incremental", () -> {
+            FibonacciHeap heap = new FibonacciHeap();
+            heap.setConsolidationBudget(4);
+            return heap;
+        });
+        configurations.put("incremental1", () -> {
+            FibonacciHeap heap = new FibonacciHeap();
+            heap.setConsolidationBudget(1);
+            return heap;
+        });
+        configurations.put("parallel", () -> {
+            FibonacciHeap heap = new FibonacciHeap();
+            heap.setParallelConsolidation(ForkJoinPool.commonPool(), 8);
+            return heap;
+        });
+        configurations.put("eagerPurge", () -> {
+            FibonacciHeap heap = new FibonacciHeap();
+            heap.setPurgeThreshold(0.05);
+            return heap;
+        });
+        configurations.put("monotone", () -> new MonotoneFibonacciHeap(MonotoneFibonacciHeap.Mode.DETECT));
+        return configurations;
+    }
+
+    /**
+     * static List<Operation> generate(Random rand, int length)
+     *
+     * Draws length operations by WEIGHTS. The heap size is estimated along the way, so that it stays
+     * around TARGET_SIZE.
+     */
+    static List<Operation> generate(Random rand, int length) {
+        List<Operation> trace = new ArrayList<>(length);
+        int estimatedSize = 0;
+        for (int i = 0; i < length; i++) {
+            int draw = rand.nextInt(100);
+            int type = 0;
+            while (draw >= WEIGHTS[type])
+                draw -= WEIGHTS[type++];
+            if (estimatedSize > TARGET_SIZE && (type == INSERT || type == INSERT_ALL || type == MELD))
+                type = DELETE_MIN;
+            int a;
+            int b = rand.nextInt(MAX_DELTA);
+            switch (type) {
+                case INSERT:
+                case SPLIT:
+                    a = rand.nextInt(KEY_RANGE);
+                    break;
+                case INSERT_ALL:
+                case MELD:
+                    a = 1 + rand.nextInt(32);
+                    b = rand.nextInt();
+                    break;
+                default:
+                    a = rand.nextInt(Integer.MAX_VALUE);
+            }
+            if (type == INSERT)
+                estimatedSize++;
+            else if (type == INSERT_ALL || type == MELD)
+                estimatedSize += a;
+            else if ((type == DELETE_MIN || type == DELETE || type == CANCEL) && estimatedSize > 0)
+                estimatedSize--;
+            else if (type == SPLIT && (b & 15) == 0) // About half of the heap is drained
+                estimatedSize /= 2;
+            trace.add(new Operation(type, a, b));
+        }
+        return trace;
+    }
+
+    /**
+     * static Failure replay(List<Operation> trace, Supplier<FibonacciHeap> factory, int checkPeriod)
+     *
+     * Applies trace to a new heap and to a PriorityQueue, and returns the first failure (an exception of the
+     * heap, a difference with the queue, or a broken invariant), or null if there was none.
+     */
+    static Failure replay(List<Operation> trace, Supplier<FibonacciHeap> factory, int checkPeriod) {
+        FibonacciHeap heap = factory.get();
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        Handles handles = new Handles();
+        for (int i = 0; i < trace.size(); i++) {
+            try {
+                apply(trace.get(i), heap, queue, handles, factory);
+                if (heap.size() != queue.size() || heap.isEmpty() != queue.isEmpty())
+                    throw mismatch("size " + heap.size() + ", expected " + queue.size());
+                if (!queue.isEmpty() && heap.findMin().getKey() != queue.peek())
+                    throw mismatch("min " + heap.findMin().getKey() + ", expected " + queue.peek());
+                if ((i + 1) % checkPeriod == 0 || i == trace.size() - 1)
+                    heap.checkInvariants();
+            } catch (RuntimeException e) {
+                return new Failure(i, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * private static void apply(Operation operation, FibonacciHeap heap, PriorityQueue<Integer> queue, Handles handles, Supplier<FibonacciHeap> factory)
+     *
+     * Applies one operation to heap and queue. Operations on handles are skipped while there is none.
+     */
+    private static void apply(Operation operation, FibonacciHeap heap, PriorityQueue<Integer> queue,
+                              Handles handles, Supplier<FibonacciHeap> factory) {
+        int a = operation.a;
+        int b = operation.b;
+        switch (operation.type) {
+            case INSERT:
+                handles.add(heap.insert(a));
+                queue.add(a);
+                break;
+            case INSERT_ALL: {
+                int[] keys = randomKeys(a, b);
+                FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[a];
+                heap.insertAll(keys, nodes, (b & 1) == 0);
+                for (int i = 0; i < a; i++) {
+                    handles.add(nodes[i]);
+                    queue.add(keys[i]);
+                }
+                break;
+            }
+            case DELETE_MIN: {
+                if (queue.isEmpty())
+                    break;
+                FibonacciHeap.HeapNode min = heap.findMin();
+                queue.poll();
+                heap.deleteMin();
+                handles.remove(min);
+                break;
+            }
+            case DECREASE_KEY: {
+                if (handles.isEmpty())
+                    break;
+                FibonacciHeap.HeapNode node = handles.get(a);
+                queue.remove(node.getKey());
+                heap.decreaseKey(node, b);
+                queue.add(node.getKey());
+                break;
+            }
+            case DELETE:
+            case CANCEL: {
+                if (handles.isEmpty())
+                    break;
+                FibonacciHeap.HeapNode node = handles.get(a);
+                queue.remove(node.getKey());
+                if (operation.type == DELETE)
+                    heap.delete(node);
+                else
+                    heap.cancel(node);
+                handles.remove(node);
+                break;
+            }
+            case MELD: { // heap2 brings a cancelled node along when it can
+                FibonacciHeap heap2 = factory.get();
+                int[] keys = randomKeys(a, b);
+                FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[a];
+                heap2.insertAll(keys, nodes, (b & 2) == 0);
+                int cancelled = (a > 1) ? 0 : -1;
+                if (cancelled >= 0)
+                    heap2.cancel(nodes[cancelled]);
+                heap.meld(heap2);
+                if (!heap2.isEmpty())
+                    throw mismatch("melded heap isn't empty");
+                for (int i = 0; i < a; i++) {
+                    if (i != cancelled) {
+                        handles.add(nodes[i]);
+                        queue.add(keys[i]);
+                    }
+                }
+                break;
+            }
+            case SPLIT: { // The trees with a root of at least a are split away, then melded back or (1 in 16) drained
+                FibonacciHeap heap2 = heap.split(a);
+                heap2.checkInvariants();
+                if ((b & 15) != 0) {
+                    heap.meld(heap2);
+                    break;
+                }
+                while (!heap2.isEmpty()) {
+                    FibonacciHeap.HeapNode min = heap2.findMin();
+                    if (min.getKey() < a)
+                        throw mismatch("key " + min.getKey() + " split away with threshold " + a);
+                    queue.remove(min.getKey());
+                    heap2.deleteMin();
+                    handles.remove(min);
+                }
+                break;
+            }
+            case COMPACT:
+                if ((b & 1) == 0)
+                    heap.compact();
+                else
+                    heap.compact(b);
+                break;
+            case PURGE:
+                heap.purge();
+                break;
+            case TOP_K: {
+                int k = 1 + b % 16;
+                int[] expected = new int[Math.min(k, queue.size())];
+                Integer[] sorted = queue.toArray(new Integer[0]);
+                Arrays.sort(sorted);
+                for (int i = 0; i < expected.length; i++)
+                    expected[i] = sorted[i];
+                int[] actual = heap.topK(k);
+                if (!Arrays.equals(actual, expected))
+                    throw mismatch("topK " + Arrays.toString(actual) + ", expected " + Arrays.toString(expected));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation.type);
+        }
+    }
+
+    private static int[] randomKeys(int count, int seed) {
+        Random rand = new Random(seed);
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++)
+            keys[i] = rand.nextInt(KEY_RANGE);
+        return keys;
+    }
+
+    private static IllegalStateException mismatch(String reason) {
+        return new IllegalStateException("Differs from PriorityQueue: " + reason);
+    }
+
+    /**
+     * static List<Operation> shrink(List<Operation> trace, Supplier<FibonacciHeap> factory)
+     *
+     * Returns a subsequence of the failing trace that still fails, checking the invariants after every
+     * operation: the trace is cut after its first failure, then chunks of decreasing length are removed
+     * while the rest fails, down to single operations, within MAX_SHRINK_REPLAYS replays.
+     */
+    static List<Operation> shrink(List<Operation> trace, Supplier<FibonacciHeap> factory) {
+        Failure failure = replay(trace, factory, 1);
+        if (failure == null) // Failed only with a longer check period, which can't happen; keep the trace
+            return trace;
+        List<Operation> current = new ArrayList<>(trace.subList(0, failure.index + 1));
+        int replays = 0;
+        for (int chunk = Math.max(current.size() / 2, 1); chunk >= 1; chunk /= 2) {
+            int start = 0;
+            while (start < current.size() && replays < MAX_SHRINK_REPLAYS) {
+                List<Operation> candidate = new ArrayList<>(current.subList(0, start));
+                candidate.addAll(current.subList(Math.min(start + chunk, current.size()), current.size()));
+                replays++;
+                Failure candidateFailure = replay(candidate, factory, 1);
+                if (candidateFailure != null)
+                    current = new ArrayList<>(candidate.subList(0, candidateFailure.index + 1));
+                else
+                    start += chunk;
+            }
+        }
+        return current;
+    }
+
+    private static void report(String configuration, long seed, List<Operation> trace, Failure failure,
+                               Supplier<FibonacciHeap> factory) {
+        System.out.println(configuration + ": run with seed " + seed + " failed at operation " + failure.index
+                + ": " + failure.cause);
+        List<Operation> shrunk = shrink(trace, factory);
+        Failure shrunkFailure = replay(shrunk, factory, 1);
+        System.out.println("Shrunk to " + shrunk.size() + " operations"
+                + ((shrunkFailure != null) ? ", failing with: " + shrunkFailure.cause : "") + ":");
+        for (Operation operation : shrunk)
+            System.out.println("  " + operation);
+        System.out.println("Reproduce with: java HeapFuzzer -s " + seed + " -r 1 -n " + trace.size() + " "
+                + configuration);
+    }
+
+    /**
+     * static final class Operation
+     *
+     * An operation of a trace: its type and two arguments, whose meaning depends on the type (a key, a handle
+     * position, a delta, a count and a seed of keys, a threshold).
+     */
+    static final class Operation {
+        final int type;
+        final int a;
+        final int b;
+
+        Operation(int type, int a, int b) {
+            this.type = type;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public String toString() {
+            return OPERATION_NAMES[this.type] + "(" + this.a + ", " + this.b + ")";
+        }
+    }
+
+    /**
+     * static final class Failure
+     *
+     * The index of the operation after which a replay failed, and why.
+     */
+    static final class Failure {
+        final int index;
+        final RuntimeException cause;
+
+        Failure(int index, RuntimeException cause) {
+            this.index = index;
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * private static final class Handles
+     *
+     * The nodes of the heap that were handed out and are still in it, with O(1) add, remove and access by
+     * position (modulo the count).
+     */
+    private static final class Handles {
+        private final List<FibonacciHeap.HeapNode> nodes = new ArrayList<>();
+        private final Map<FibonacciHeap.HeapNode, Integer> positions = new IdentityHashMap<>();
+
+        void add(FibonacciHeap.HeapNode node) {
+            this.positions.put(node, this.nodes.size());
+            this.nodes.add(node);
+        }
+
+        void remove(FibonacciHeap.HeapNode node) {
+            Integer position = this.positions.remove(node);
+            if (position == null)
+                return;
+            FibonacciHeap.HeapNode last = this.nodes.remove(this.nodes.size() - 1);
+            if (last != node) {
+                this.nodes.set(position, last);
+                this.positions.put(last, position);
+            }
+        }
+
+        FibonacciHeap.HeapNode get(int position) {
+            return this.nodes.get(position % this.nodes.size());
+        }
+
+        boolean isEmpty() {
+            return this.nodes.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * HeapMetrics
+ *
+ * Receives the operation events of a FibonacciHeap: links, cuts, cascading cuts, marks, deleteMin calls and
+ * consolidation passes. Each heap reports to its own HeapMetrics, given to its constructor.
+ *
+ * All the methods do nothing by default. Heaps created without metrics report to NOOP, and as long as a
+ * call site only ever sees NOOP the JIT inlines the calls to nothing.
+ * See CountingHeapMetrics (one heap) and SharedHeapMetrics (many heaps, many threads) for counting
+ * implementations, and HeapMetricsMBean for exporting them.
+ */
+public interface HeapMetrics
+{
+    HeapMetrics NOOP = new HeapMetrics() { };
+
+    /**
+     * default void onLink()
+     *
+     * Called for every link of two trees of the same rank.
+     */
+    default void onLink() {
+    }
+
+    /**
+     * default void onLinks(long links)
+     *
+     * Called with the number of links made by a batch of links counted at once (a parallel consolidation).
+     * Calls onLink() links times unless overridden.
+     */
+    default void onLinks(long links) {
+        for (long i = 0; i < links; i++)
+            this.onLink();
+    }
+
+    /**
+     * default void onCut()
+     *
+     * Called for every cut of a subtree from its parent.
+     */
+    default void onCut() {
+    }
+
+    /**
+     * default void onCascadingCut(int cuts)
+     *
+     * Called once per decreaseKey or delete that cut nodes, with the number of cuts it made.
+     */
+    default void onCascadingCut(int cuts) {
+    }
+
+    /**
+     * default void onMark()
+     *
+     * Called whenever a node gets marked.
+     */
+    default void onMark() {
+    }
+
+    /**
+     * default void onDeleteMin(int numOfTrees)
+     *
+     * Called at the beginning of every deleteMin, with the length of the root list.
+     */
+    default void onDeleteMin(int numOfTrees) {
+    }
+
+    /**
+     * default void onConsolidation(int maxRank)
+     *
+     * Called after every consolidation pass, with the largest rank of the resulting trees.
+     */
+    default void onConsolidation(int maxRank) {
+    }
+
+    /**
+     * default Map<String, Long> snapshot()
+     *
+     * Returns the current values of the metrics by name (empty if nothing is counted).
+     */
+    default Map<String, Long> snapshot() {
+        return Collections.emptyMap();
+    }
+}
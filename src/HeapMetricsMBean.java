@@ -0,0 +1,84 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * HeapMetricsMBean
+ *
+ * Exports a HeapMetrics through JMX: every entry of its snapshot() is a read-only long attribute.
+ * Registries of other kinds (Micrometer-style gauges, for example) can poll snapshot() directly.
+ */
+public class HeapMetricsMBean implements DynamicMBean
+{
+    private final HeapMetrics metrics;
+
+    public HeapMetricsMBean(HeapMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * public static ObjectName register(HeapMetrics metrics, String name)
+     *
+     * Registers metrics in the platform MBean server under the object name
+     * "FibonacciHeap:type=HeapMetrics,name=<name>", and returns that name.
+     *
+     */
+    public static ObjectName register(HeapMetrics metrics, String name) throws JMException {
+        ObjectName objectName = new ObjectName("FibonacciHeap", "type", "HeapMetrics");
+        objectName = ObjectName.getInstance(objectName.getCanonicalName() + ",name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new HeapMetricsMBean(metrics), objectName);
+        return objectName;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Long value = this.metrics.snapshot().get(attribute);
+        if (value == null)
+            throw new AttributeNotFoundException(attribute);
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Long> snapshot = this.metrics.snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes)
+            if (snapshot.containsKey(attribute))
+                list.add(new Attribute(attribute, snapshot.get(attribute)));
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Read-only attribute: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Long> snapshot = this.metrics.snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+        int i = 0;
+        for (String name : snapshot.keySet())
+            attributes[i++] = new MBeanAttributeInfo(name, "long", name, true, false, false);
+        return new MBeanInfo(HeapMetricsMBean.class.getName(), "FibonacciHeap metrics",
+                attributes, null, null, null);
+    }
+}
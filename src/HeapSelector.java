@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * HeapSelector
+ *
+ * Picks the fastest PriorityHeap implementation for a recorded workload (a HeapTrace): every candidate
+ * replays the trace a few times to warm the JIT up, and is then timed over several replays, keeping the
+ * best time. Candidates that reject the trace (RadixHeap on non-monotone keys) are reported as unsupported.
+ *
+ * Usage: java HeapSelector [-n vertices] runs the selection on a Dijkstra trace over a road-like grid.
+ */
+public class HeapSelector
+{
+    /**
+     * public static class Candidate<N, H extends PriorityHeap<N, H>>
+     *
+     * A named heap implementation, given by a factory of empty heaps.
+     */
+    public static class Candidate<N, H extends PriorityHeap<N, H>> {
+        private final String name;
+        private final Supplier<H> factory;
+
+        public Candidate(String name, Supplier<H> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public H newHeap() {
+            return this.factory.get();
+        }
+
+        /**
+         * public long replay(HeapTrace trace)
+         *
+         * Replays trace on a new heap, see HeapTrace.replay.
+         *
+         */
+        public long replay(HeapTrace trace) {
+            return trace.replay(this.factory.get(), this.factory);
+        }
+
+        /**
+         * public long replay(HeapTrace trace, H heap, HeapTrace.Listener listener)
+         *
+         * Replays trace on heap, timing every operation for listener.
+         *
+         */
+        public long replay(HeapTrace trace, H heap, HeapTrace.Listener listener) {
+            return trace.replay(heap, this.factory, listener);
+        }
+    }
+
+    /**
+     * public static class Result
+     *
+     * The best replay time of a candidate, or the reason it couldn't replay the trace.
+     */
+    public static class Result {
+        private final String name;
+        private final long nanos;
+        private final String error;
+
+        private Result(String name, long nanos, String error) {
+            this.name = name;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public long getNanos() {
+            return this.nanos;
+        }
+
+        public boolean isSupported() {
+            return this.error == null;
+        }
+
+        @Override
+        public String toString() {
+            return this.isSupported() ? String.format("%-16s %12.3f ms", this.name, this.nanos / 1e6)
+                    : String.format("%-16s unsupported (%s)", this.name, this.error);
+        }
+    }
+
+    /**
+     * public static List<Candidate<?, ?>> defaultCandidates()
+     *
+     * Returns all the heap implementations: FibonacciHeap, MonotoneFibonacciHeap (detecting non monotone keys),
+     * binary, 4-ary and 8-ary DaryHeaps, PairingHeap, RankPairingHeap and RadixHeap.
+     */
+    public static List<Candidate<?, ?>> defaultCandidates() {
+        List<Candidate<?, ?>> candidates = new ArrayList<>();
+        candidates.add(new Candidate<>("fibonacci", FibonacciHeap::new));
+        candidates.add(new Candidate<FibonacciHeap.HeapNode, FibonacciHeap>("monotoneFibonacci",
+                () -> new MonotoneFibonacciHeap(MonotoneFibonacciHeap.Mode.DETECT)));
+        candidates.add(new Candidate<FibonacciHeap.HeapNode, FibonacciHeap>("incrementalFibonacci", () -> {
+            FibonacciHeap heap = new FibonacciHeap();
+            heap.setConsolidationBudget(4);
+            return heap;
+        }));
+        candidates.add(new Candidate<>("binary", () -> new DaryHeap(2)));
+        candidates.add(new Candidate<>("4-ary", () -> new DaryHeap(4)));
+        candidates.add(new Candidate<>("8-ary", () -> new DaryHeap(8)));
+        candidates.add(new Candidate<>("pairing", PairingHeap::new));
+        candidates.add(new Candidate<>("rankPairing", RankPairingHeap::new));
+        candidates.add(new Candidate<>("radix", RadixHeap::new));
+        return candidates;
+    }
+
+    /**
+     * public static List<Result> rank(HeapTrace trace, List<Candidate<?, ?>> candidates, int warmup, int iterations)
+     *
+     * Replays trace on a new heap of every candidate, warmup times untimed and then iterations times timed,
+     * and returns the results from the fastest to the slowest, followed by the unsupported candidates.
+     */
+    public static List<Result> rank(HeapTrace trace, List<Candidate<?, ?>> candidates, int warmup, int iterations) {
+        List<Result> results = new ArrayList<>();
+        for (Candidate<?, ?> candidate : candidates) {
+            long best = Long.MAX_VALUE;
+            String error = null;
+            try {
+                for (int i = 0; i < warmup; i++)
+                    candidate.replay(trace);
+                for (int i = 0; i < iterations; i++) {
+                    long start = System.nanoTime();
+                    candidate.replay(trace);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+            results.add(new Result(candidate.getName(), best, error));
+        }
+        results.sort(Comparator.comparingLong(Result::getNanos));
+        return results;
+    }
+
+    /**
+     * public static String fastest(HeapTrace trace)
+     *
+     * Returns the name of the default candidate that replays trace the fastest.
+     */
+    public static String fastest(HeapTrace trace) {
+        return rank(trace, defaultCandidates(), 3, 5).get(0).getName();
+    }
+
+    /**
+     * public static HeapTrace dijkstraTrace(CsrGraph graph, int source)
+     *
+     * Runs Dijkstra from source on graph and returns the trace of its heap operations.
+     */
+    public static HeapTrace dijkstraTrace(CsrGraph graph, int source) {
+        int n = graph.numOfVertices();
+        HeapTrace trace = new HeapTrace();
+        PairingHeap heap = new PairingHeap();
+        PairingHeap.Node[] nodes = new PairingHeap.Node[n];
+        int[] traceNodes = new int[n];
+        Map<PairingHeap.Node, Integer> vertexOf = new IdentityHashMap<>();
+        boolean[] settled = new boolean[n];
+        nodes[source] = heap.insert(0);
+        traceNodes[source] = trace.insert(0);
+        vertexOf.put(nodes[source], source);
+        while (!heap.isEmpty()) {
+            PairingHeap.Node min = heap.findMin();
+            int u = vertexOf.get(min);
+            int du = min.getKey();
+            heap.deleteMin();
+            trace.deleteMin(traceNodes[u]);
+            settled[u] = true;
+            for (int e = graph.edgesBegin(u), end = graph.edgesEnd(u); e < end; e++) {
+                int v = graph.target(e);
+                int dv = du + graph.weight(e);
+                if (nodes[v] == null) {
+                    nodes[v] = heap.insert(dv);
+                    traceNodes[v] = trace.insert(dv);
+                    vertexOf.put(nodes[v], v);
+                } else if (!settled[v] && dv < nodes[v].getKey()) {
+                    trace.decreaseKey(traceNodes[v], nodes[v].getKey() - dv);
+                    heap.decreaseKey(nodes[v], nodes[v].getKey() - dv);
+                }
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * public static HeapTrace dijkstraTrace(CsrGraph graph)
+     *
+     * Returns the trace of Dijkstra from a vertex that reaches more than half of graph (so not from a small
+     * disconnected piece of a roadLikeGrid), trying the vertices from the middle of graph on.
+     */
+    public static HeapTrace dijkstraTrace(CsrGraph graph) {
+        int numOfVertices = graph.numOfVertices();
+        int source = numOfVertices / 2;
+        HeapTrace trace;
+        do {
+            trace = dijkstraTrace(graph, source++ % numOfVertices);
+        } while (trace.numOfInserts() <= numOfVertices / 2 && source != numOfVertices / 2 + numOfVertices);
+        return trace;
+    }
+
+    public static void main(String[] args) {
+        int n = 1 << 18;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-n"))
+                n = Integer.parseInt(args[++i]);
+        }
+        int width = (int) Math.sqrt(n);
+        HeapTrace trace = dijkstraTrace(CsrGraph.roadLikeGrid(width, width, 100, new Random(42)));
+        System.out.println("Dijkstra trace: " + trace.length() + " operations");
+        for (Result result : rank(trace, defaultCandidates(), 3, 5))
+            System.out.println(result);
+    }
+}
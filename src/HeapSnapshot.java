@@ -0,0 +1,348 @@
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * HeapSnapshot
+ *
+ * Saves a FibonacciHeap with its whole structure (root order, child lists, ranks, marks, min and node ids)
+ * and restores it in linear time without linking anything, so a restored heap doesn't pay for a big
+ * consolidation on its first deleteMin the way re-inserting all its keys does.
+ *
+ * Format (big-endian): a 24 bytes header (MAGIC, VERSION, size, number of trees, number of non marked nodes,
+ * position of the min in the root list), then one record per node in preorder, each node followed by its
+ * children in child list order. A record is the key (int), then a byte (rank << 2 | hasId << 1 | mark),
+ * then the id (int) if hasId, so most nodes take 5 bytes. A cancelled node (see FibonacciHeap.cancel) is saved
+ * in place, as a tombstone: hasId with the id -1, which a live node never writes. The size counts tombstones.
+ * Version 1 snapshots, which have no tombstones, are still read.
+ *
+ * Loading checks the invariants of the heap (heap order, unmarked roots, ranks bounded by subtree sizes,
+ * min and counters), and throws IOException on a snapshot that breaks them.
+ * See MappedFibonacciHeap.copyOf for the array-backed layout, which is restored by mapping its file.
+ */
+public class HeapSnapshot
+{
+    static final int MAGIC = 0x4648534e; // "FHSN"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 24;
+    private static final int MAX_RECORD_BYTES = 9;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private HeapSnapshot() {
+    }
+
+    /**
+     * public static void write(FibonacciHeap heap, Path path)
+     *
+     * Creates (or truncates) the file at path, and writes a snapshot of heap to it.
+     *
+     */
+    public static void write(FibonacciHeap heap, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(heap, channel);
+        }
+    }
+
+    /**
+     * public static ByteBuffer toByteBuffer(FibonacciHeap heap)
+     *
+     * Returns a snapshot of heap in a buffer that holds exactly the snapshot.
+     *
+     */
+    public static ByteBuffer toByteBuffer(FibonacciHeap heap) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_BYTES + 5 * heap.size());
+        try {
+            write(heap, Channels.newChannel(out));
+        } catch (IOException e) {
+            throw new AssertionError(e); // Writing to memory doesn't fail
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /**
+     * public static void write(FibonacciHeap heap, WritableByteChannel channel)
+     *
+     * Writes a snapshot of heap to channel, walking every tree in preorder without recursion.
+     * heap is left as it is: its cancelled nodes are saved as tombstones, so the trees keep their shape.
+     *
+     */
+    public static void write(FibonacciHeap heap, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(heap.size() + heap.tombstones()).putInt(0).putInt(heap.nonMarked()).putInt(0);
+        if (!heap.isEmpty()) {
+            int numOfTrees = 0;
+            int minPosition = 0;
+            FibonacciHeap.HeapNode root = heap.getFirst();
+            do {
+                if (root == heap.getMin())
+                    minPosition = numOfTrees;
+                numOfTrees++;
+                root = root.getNext();
+            } while (root != heap.getFirst());
+            buffer.putInt(12, numOfTrees).putInt(20, minPosition);
+            FibonacciHeap.HeapNode[] nextSiblings = new FibonacciHeap.HeapNode[16]; // Per depth: next node to write
+            FibonacciHeap.HeapNode[] listFirsts = new FibonacciHeap.HeapNode[16];
+            nextSiblings[0] = heap.getFirst();
+            listFirsts[0] = heap.getFirst();
+            int depth = 0;
+            while (depth >= 0) {
+                FibonacciHeap.HeapNode node = nextSiblings[depth];
+                if (node == null) {
+                    depth--;
+                    continue;
+                }
+                if (buffer.remaining() < MAX_RECORD_BYTES)
+                    drain(buffer, channel);
+                boolean hasId = node.isCancelled() || node.getId() != -1;
+                buffer.putInt(node.getKey());
+                buffer.put((byte) (node.getRank() << 2 | (hasId ? 2 : 0) | (node.isMark() ? 1 : 0)));
+                if (hasId)
+                    buffer.putInt(node.isCancelled() ? -1 : node.getId());
+                nextSiblings[depth] = (node.getNext() == listFirsts[depth]) ? null : node.getNext();
+                if (node.getChild() != null) {
+                    depth++;
+                    if (depth == nextSiblings.length) {
+                        nextSiblings = Arrays.copyOf(nextSiblings, 2 * depth);
+                        listFirsts = Arrays.copyOf(listFirsts, 2 * depth);
+                    }
+                    nextSiblings[depth] = node.getChild();
+                    listFirsts[depth] = node.getChild();
+                }
+            }
+        }
+        drain(buffer, channel);
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * public static FibonacciHeap read(Path path)
+     *
+     * Restores the heap saved in the file at path. The file is mapped rather than read through a buffer.
+     *
+     */
+    public static FibonacciHeap read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), HeapMetrics.NOOP);
+        }
+    }
+
+    /**
+     * public static FibonacciHeap read(ByteBuffer snapshot, HeapMetrics metrics)
+     *
+     * Restores the heap saved in snapshot, from its position to its limit, into a new heap that reports
+     * to metrics. The position of snapshot is left after the snapshot.
+     *
+     */
+    public static FibonacciHeap read(ByteBuffer snapshot, HeapMetrics metrics) throws IOException {
+        return restore(new Input(null, snapshot), metrics);
+    }
+
+    /**
+     * public static FibonacciHeap read(ReadableByteChannel channel, HeapMetrics metrics)
+     *
+     * Restores the heap saved in channel into a new heap that reports to metrics. channel is read through
+     * a buffer, so it may be read past the end of the snapshot.
+     *
+     */
+    public static FibonacciHeap read(ReadableByteChannel channel, HeapMetrics metrics) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.flip();
+        return restore(new Input(channel, buffer), metrics);
+    }
+
+    /**
+     * private static FibonacciHeap restore(Input input, HeapMetrics metrics)
+     *
+     * Rebuilds the trees from their preorder records, keeping a stack of the nodes whose children are
+     * still being read, and checks the invariants on the way.
+     *
+     */
+    private static FibonacciHeap restore(Input input, HeapMetrics metrics) throws IOException {
+        input.require(HEADER_BYTES);
+        ByteBuffer buffer = input.buffer;
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("Not a heap snapshot");
+        int version = buffer.getInt();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported heap snapshot version " + version);
+        int size = buffer.getInt();
+        int numOfTrees = buffer.getInt();
+        int nonMarked = buffer.getInt();
+        int minPosition = buffer.getInt();
+        if (size < 0 || numOfTrees < 0 || numOfTrees > size || (size > 0) != (numOfTrees > 0)
+                || minPosition < 0 || (size > 0 && minPosition >= numOfTrees))
+            throw corrupt("bad header");
+        FibonacciHeap heap = new FibonacciHeap(metrics);
+        if (size == 0)
+            return heap;
+        FibonacciHeap.HeapNode[] outerParents = new FibonacciHeap.HeapNode[16]; // Per depth, the enclosing lists
+        int[] outerRemaining = new int[16];
+        int[] starts = new int[16]; // Index of the parent, to get the size of its subtree
+        int depth = 0;
+        FibonacciHeap.HeapNode parent = null; // Of the list being read (null for the root list)
+        FibonacciHeap.HeapNode last = null; // Last node read in that list
+        int remaining = numOfTrees; // Nodes still to read in that list
+        FibonacciHeap.HeapNode first = null;
+        FibonacciHeap.HeapNode lastRoot = null;
+        FibonacciHeap.HeapNode min = null;
+        int roots = 0;
+        int unmarked = 0;
+        int tombstones = 0;
+        for (int i = 0; i < size; i++) {
+            while (remaining == 0) { // The list is complete: close it, and go back to its parent's list
+                if (depth == 0)
+                    throw corrupt("more nodes than the trees hold");
+                endChildList(parent, last, i - starts[--depth]);
+                last = parent;
+                parent = outerParents[depth];
+                remaining = outerRemaining[depth];
+            }
+            remaining--;
+            input.require(5);
+            FibonacciHeap.HeapNode node = new FibonacciHeap.HeapNode(buffer.getInt());
+            int flags = buffer.get() & 0xff;
+            int id = -1;
+            if ((flags & 2) != 0) {
+                input.require(4);
+                id = buffer.getInt();
+                if (id == -1 && version == 1)
+                    throw corrupt("tombstone in a version 1 snapshot");
+            }
+            if ((flags & 2) != 0 && id == -1) { // A tombstone belongs to no heap
+                node.setCancelled();
+                tombstones++;
+            } else {
+                node.setId(id);
+                heap.own(node);
+            }
+            if ((flags & 1) != 0)
+                node.setMark(true);
+            else
+                unmarked++;
+            if (parent == null) {
+                if (node.isMark())
+                    throw corrupt("marked root");
+                if (roots++ == minPosition)
+                    min = node;
+                if (first == null)
+                    first = node;
+                lastRoot = node;
+            } else {
+                if (node.getKey() < parent.getKey())
+                    throw corrupt("key " + node.getKey() + " below its parent's key " + parent.getKey());
+                node.setParent(parent);
+                if (last == null)
+                    parent.setChild(node);
+            }
+            if (last != null) { // The list is closed into a circle once complete
+                last.setNext(node);
+                node.setPrev(last);
+            }
+            last = node;
+            int rank = flags >>> 2;
+            if (rank > 0) { // Read node's children first
+                node.setRank(rank);
+                if (depth == outerParents.length) {
+                    outerParents = Arrays.copyOf(outerParents, 2 * depth);
+                    outerRemaining = Arrays.copyOf(outerRemaining, 2 * depth);
+                    starts = Arrays.copyOf(starts, 2 * depth);
+                }
+                outerParents[depth] = parent;
+                outerRemaining[depth] = remaining;
+                starts[depth] = i;
+                depth++;
+                parent = node;
+                last = null;
+                remaining = rank;
+            }
+        }
+        while (depth > 0) {
+            if (remaining != 0)
+                throw corrupt("fewer nodes than the ranks announce");
+            endChildList(parent, last, size - starts[--depth]);
+            last = parent;
+            parent = outerParents[depth];
+            remaining = outerRemaining[depth];
+        }
+        if (remaining != 0)
+            throw corrupt("fewer trees than announced");
+        if (unmarked != nonMarked)
+            throw corrupt("non marked count " + nonMarked + " instead of " + unmarked);
+        if (min.isCancelled())
+            throw corrupt("cancelled min");
+        lastRoot.updateNextNode(first);
+        FibonacciHeap.HeapNode root = first;
+        do {
+            if (root.getKey() < min.getKey() && !root.isCancelled())
+                throw corrupt("min isn't minimal");
+            root = root.getNext();
+        } while (root != first);
+        heap.restore(first, min, numOfTrees, size, nonMarked, tombstones);
+        return heap;
+    }
+
+    /**
+     * private static void endChildList(FibonacciHeap.HeapNode parent, FibonacciHeap.HeapNode last, int subtreeSize)
+     *
+     * Closes the child list of parent, which ends with last, into a circle, and checks that a tree of
+     * subtreeSize nodes may have parent's rank, which is at most about log_phi(subtreeSize)
+     *
+     */
+    private static void endChildList(FibonacciHeap.HeapNode parent, FibonacciHeap.HeapNode last, int subtreeSize)
+            throws IOException {
+        last.updateNextNode(parent.getChild());
+        if (parent.getRank() >= FibonacciHeap.bucketsCount(subtreeSize))
+            throw corrupt("rank " + parent.getRank() + " too large for a subtree of " + subtreeSize + " nodes");
+    }
+
+    private static IOException corrupt(String reason) {
+        return new IOException("Corrupt heap snapshot: " + reason);
+    }
+
+    /**
+     * private static class Input
+     *
+     * A buffer over the snapshot. Without a channel the buffer holds the whole snapshot, otherwise it is
+     * refilled from the channel when a record doesn't fit in what is left of it.
+     */
+    private static class Input {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        private Input(ReadableByteChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private void require(int bytes) throws IOException {
+            if (this.buffer.remaining() >= bytes)
+                return;
+            if (this.channel != null) {
+                this.buffer.compact();
+                while (this.buffer.position() < bytes) {
+                    if (this.channel.read(this.buffer) < 0)
+                        break;
+                }
+                this.buffer.flip();
+                if (this.buffer.remaining() >= bytes)
+                    return;
+            }
+            throw new EOFException("Truncated heap snapshot");
+        }
+    }
+}
@@ -0,0 +1,338 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * HeapTrace
+ *
+ * A recorded sequence of heap operations that can be replayed against any PriorityHeap. A node is referred
+ * to by the index of the insert that created it (0 for the first insert, and so on). deleteMin records the
+ * node it deleted, so that a heap breaking ties between equal keys differently still deletes the same
+ * node on replay, and the operations that follow refer to nodes that exist.
+ *
+ * A meld is recorded as the keys of the melded heap (MELD_INSERT, each creating a node like insert) followed
+ * by MELD; on replay, the keys are inserted into a new heap that is then melded into the replayed heap.
+ *
+ * Every operation takes three ints (code, first argument, second argument) in a single growable array.
+ * See HeapTraceWriter for the binary format, read back by read.
+ */
+public class HeapTrace
+{
+    public static final int INSERT = 0;        // key
+    public static final int DELETE_MIN = 1;    // node
+    public static final int DECREASE_KEY = 2;  // node, delta
+    public static final int DELETE = 3;        // node
+    public static final int MELD_INSERT = 4;   // key
+    public static final int MELD = 5;
+    private int[] ops = new int[48];
+    private int length;
+    private int numOfInserts;
+
+   /**
+    * public int insert(int key)
+    *
+    * Records an insert of key, and returns the index of the node it creates.
+    *
+    */
+    public int insert(int key) {
+        this.add(INSERT, key, 0);
+        return this.numOfInserts++;
+    }
+
+   /**
+    * public int meldInsert(int key)
+    *
+    * Records a key of a heap that the next meld melds in, and returns the index of its node.
+    *
+    */
+    public int meldInsert(int key) {
+        this.add(MELD_INSERT, key, 0);
+        return this.numOfInserts++;
+    }
+
+   /**
+    * public void meld()
+    *
+    * Records a meld of the heap made of the keys recorded by meldInsert since the previous meld.
+    *
+    */
+    public void meld() {
+        this.add(MELD, 0, 0);
+    }
+
+   /**
+    * public void deleteMin(int node)
+    *
+    * Records a deleteMin that deleted the given node.
+    *
+    */
+    public void deleteMin(int node) {
+        this.add(DELETE_MIN, this.checkNode(node), 0);
+    }
+
+   /**
+    * public void decreaseKey(int node, int delta)
+    *
+    * Records a decreaseKey of the given node by delta.
+    *
+    */
+    public void decreaseKey(int node, int delta) {
+        this.add(DECREASE_KEY, this.checkNode(node), delta);
+    }
+
+   /**
+    * public void delete(int node)
+    *
+    * Records a delete of the given node.
+    *
+    */
+    public void delete(int node) {
+        this.add(DELETE, this.checkNode(node), 0);
+    }
+
+    private int checkNode(int node) {
+        if (node < 0 || node >= this.numOfInserts)
+            throw new IllegalArgumentException("Unknown node: " + node);
+        return node;
+    }
+
+    private void add(int code, int arg1, int arg2) {
+        if (3 * this.length + 3 > this.ops.length)
+            this.ops = Arrays.copyOf(this.ops, 2 * this.ops.length);
+        this.ops[3 * this.length] = code;
+        this.ops[3 * this.length + 1] = arg1;
+        this.ops[3 * this.length + 2] = arg2;
+        this.length++;
+    }
+
+   /**
+    * public int length()
+    *
+    * Returns the number of recorded operations.
+    *
+    */
+    public int length() {
+        return this.length;
+    }
+
+   /**
+    * public int numOfInserts()
+    *
+    * Returns the number of recorded inserts, which is the number of nodes of the trace.
+    *
+    */
+    public int numOfInserts() {
+        return this.numOfInserts;
+    }
+
+   /**
+    * public int code(int i)
+    *
+    * Returns the code (INSERT, DELETE_MIN, DECREASE_KEY, DELETE, MELD_INSERT or MELD) of the i'th operation.
+    *
+    */
+    public int code(int i) {
+        return this.ops[3 * i];
+    }
+
+   /**
+    * public int arg1(int i)
+    *
+    * Returns the first argument of the i'th operation: the key of an insert or meldInsert, the node of
+    * deleteMin, decreaseKey and delete, 0 for a meld.
+    *
+    */
+    public int arg1(int i) {
+        return this.ops[3 * i + 1];
+    }
+
+   /**
+    * public int arg2(int i)
+    *
+    * Returns the second argument of the i'th operation: the delta of a decreaseKey, 0 for the others.
+    *
+    */
+    public int arg2(int i) {
+        return this.ops[3 * i + 2];
+    }
+
+    /**
+     * public interface Listener
+     *
+     * Receives every replayed operation: its index in the trace, its code and how long it took.
+     */
+    public interface Listener {
+        void onOperation(int index, int code, long nanos);
+    }
+
+   /**
+    * public <N, H extends PriorityHeap<N, H>> long replay(H heap, Supplier<? extends H> newHeap)
+    *
+    * Runs the recorded operations on heap, using newHeap for the heaps that melds meld in, and returns
+    * the sum of the keys deleted by deleteMin (which also keeps the JIT from dropping the replay).
+    *
+    */
+    public <N, H extends PriorityHeap<N, H>> long replay(H heap, Supplier<? extends H> newHeap) {
+        return this.replay(heap, newHeap, null);
+    }
+
+   /**
+    * public <N, H extends PriorityHeap<N, H>> long replay(H heap, Supplier<? extends H> newHeap, Listener listener)
+    *
+    * Like replay(heap, newHeap), and times every operation for listener if it isn't null.
+    *
+    */
+    public <N, H extends PriorityHeap<N, H>> long replay(H heap, Supplier<? extends H> newHeap, Listener listener) {
+        @SuppressWarnings("unchecked")
+        N[] nodes = (N[]) new Object[this.numOfInserts];
+        H meldHeap = null;
+        int inserted = 0;
+        long sum = 0;
+        for (int i = 0; i < this.length; i++) {
+            int code = this.ops[3 * i];
+            int arg1 = this.ops[3 * i + 1];
+            long start = (listener == null) ? 0 : System.nanoTime();
+            switch (code) {
+                case INSERT:
+                    nodes[inserted++] = heap.insert(arg1);
+                    break;
+                case DELETE_MIN:
+                    N min = heap.findMin();
+                    sum += heap.getKey(min);
+                    if (min == nodes[arg1])
+                        heap.deleteMin();
+                    else // A tie broken the other way: the recorded node has the same key
+                        heap.delete(nodes[arg1]);
+                    nodes[arg1] = null;
+                    break;
+                case DECREASE_KEY:
+                    heap.decreaseKey(nodes[arg1], this.ops[3 * i + 2]);
+                    break;
+                case DELETE:
+                    heap.delete(nodes[arg1]);
+                    nodes[arg1] = null;
+                    break;
+                case MELD_INSERT:
+                    if (meldHeap == null)
+                        meldHeap = newHeap.get();
+                    nodes[inserted++] = meldHeap.insert(arg1);
+                    break;
+                default:
+                    if (meldHeap != null)
+                        heap.meld(meldHeap);
+                    meldHeap = null;
+            }
+            if (listener != null)
+                listener.onOperation(i, code, System.nanoTime() - start);
+        }
+        return sum;
+    }
+
+   /**
+    * public void write(Path path)
+    *
+    * Writes the trace to a file, in HeapTraceWriter's format.
+    *
+    */
+    public void write(Path path) throws IOException {
+        try (HeapTraceWriter writer = HeapTraceWriter.open(path)) {
+            for (int i = 0; i < this.length; i++)
+                writer.write(this.code(i), this.arg1(i), this.arg2(i));
+        }
+    }
+
+   /**
+    * public static HeapTrace read(Path path)
+    *
+    * Reads a trace written by HeapTraceWriter (or by write). Throws IOException if the file isn't a trace
+    * or is truncated.
+    *
+    */
+    public static HeapTrace read(Path path) throws IOException {
+        try (ReadableByteChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+   /**
+    * public static HeapTrace read(ReadableByteChannel channel)
+    *
+    * Reads a trace from channel, until its end.
+    *
+    */
+    public static HeapTrace read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HeapTraceWriter.BUFFER_SIZE);
+        buffer.flip();
+        VarintReader reader = new VarintReader(channel, buffer);
+        if (reader.readVarint() != HeapTraceWriter.MAGIC || reader.readVarint() != HeapTraceWriter.VERSION)
+            throw new IOException("Not a heap trace");
+        HeapTrace trace = new HeapTrace();
+        while (reader.hasMore()) {
+            long head = reader.readVarint();
+            int code = (int) (head & 7);
+            long arg1 = head >>> 3;
+            switch (code) {
+                case INSERT: trace.insert(HeapTraceWriter.unzigzag(arg1)); break;
+                case MELD_INSERT: trace.meldInsert(HeapTraceWriter.unzigzag(arg1)); break;
+                case DELETE_MIN: trace.deleteMin(toNode(arg1)); break;
+                case DECREASE_KEY: trace.decreaseKey(toNode(arg1), HeapTraceWriter.unzigzag(reader.readVarint())); break;
+                case DELETE: trace.delete(toNode(arg1)); break;
+                case MELD: trace.meld(); break;
+                default: throw new IOException("Unknown operation code: " + code);
+            }
+        }
+        return trace;
+    }
+
+    private static int toNode(long value) throws IOException {
+        if (value > Integer.MAX_VALUE)
+            throw new IOException("Node index out of range: " + value);
+        return (int) value;
+    }
+
+    /**
+     * private static class VarintReader
+     *
+     * Reads varints from a channel through a buffer that is refilled when it runs out.
+     */
+    private static class VarintReader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        private VarintReader(ReadableByteChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private boolean hasMore() throws IOException {
+            if (this.buffer.hasRemaining())
+                return true;
+            this.buffer.clear();
+            int read;
+            do {
+                read = this.channel.read(this.buffer);
+            } while (read == 0);
+            this.buffer.flip();
+            return read > 0;
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (!this.hasMore())
+                    throw new EOFException("Truncated heap trace");
+                byte b = this.buffer.get();
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0)
+                    return value;
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * HeapTraceWriter
+ *
+ * Writes heap operations as a compact binary trace to a channel, through a buffer that is written out
+ * whenever it fills up (and on flush and close).
+ *
+ * Format: the varints MAGIC and VERSION, then one record per operation. A record starts with the varint
+ * (argument << 3 | code), where the argument is the node index for DELETE_MIN, DECREASE_KEY and DELETE,
+ * the zigzag-encoded key for INSERT and MELD_INSERT, and 0 for MELD; DECREASE_KEY is followed by the
+ * zigzag-encoded delta. Varints are little-endian base 128, so small node indices and keys take one byte
+ * or two.
+ */
+public class HeapTraceWriter implements Closeable
+{
+    static final long MAGIC = 0x46485452; // "FHTR"
+    static final long VERSION = 1;
+    static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_RECORD_SIZE = 2 * 10;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    public HeapTraceWriter(WritableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.writeVarint(MAGIC);
+        this.writeVarint(VERSION);
+    }
+
+    /**
+     * public static HeapTraceWriter open(Path path)
+     *
+     * Creates (or truncates) the file at path, and returns a writer to it.
+     *
+     */
+    public static HeapTraceWriter open(Path path) throws IOException {
+        return new HeapTraceWriter(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * public void write(int code, int arg1, int arg2)
+     *
+     * Writes an operation, with the codes and arguments of HeapTrace.
+     *
+     */
+    public void write(int code, int arg1, int arg2) throws IOException {
+        if (this.buffer.remaining() < MAX_RECORD_SIZE)
+            this.drain();
+        switch (code) {
+            case HeapTrace.INSERT:
+            case HeapTrace.MELD_INSERT:
+                this.writeVarint(zigzag(arg1) << 3 | code);
+                break;
+            case HeapTrace.DECREASE_KEY:
+                this.writeVarint((long) arg1 << 3 | code);
+                this.writeVarint(zigzag(arg2));
+                break;
+            case HeapTrace.MELD:
+                this.writeVarint(code);
+                break;
+            default:
+                this.writeVarint((long) arg1 << 3 | code);
+        }
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7fL) != 0) {
+            this.buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        this.buffer.put((byte) value);
+    }
+
+    static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xffffffffL;
+    }
+
+    static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    private void drain() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining())
+            this.channel.write(this.buffer);
+        this.buffer.clear();
+    }
+
+    /**
+     * public void flush()
+     *
+     * Writes the buffered operations to the channel.
+     *
+     */
+    public void flush() throws IOException {
+        this.drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.drain();
+        } finally {
+            this.channel.close();
+        }
+    }
+}
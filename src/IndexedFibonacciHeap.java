@@ -0,0 +1,194 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * IndexedFibonacciHeap
+ *
+ * A FibonacciHeap whose elements can also be reached by an external int id (0..n-1), for example a graph
+ * vertex. The heap keeps a dense array from id to node, so decreaseKeyById, deleteById, cancelById, containsId
+ * and keyOf are O(1) lookups, and callers don't need a map from their ids to HeapNodes.
+ *
+ * Nodes inserted without an id (with insert(int key), or melded in from another heap) are not indexed.
+ */
+public class IndexedFibonacciHeap extends FibonacciHeap
+{
+    private HeapNode[] nodesById;
+
+    public IndexedFibonacciHeap() {
+        this(16);
+    }
+
+    /**
+     * public IndexedFibonacciHeap(int capacity)
+     *
+     * Creates an empty heap, with room for the ids 0..capacity-1 (larger ids grow the index).
+     *
+     */
+    public IndexedFibonacciHeap(int capacity) {
+        this.nodesById = new HeapNode[Math.max(capacity, 1)];
+    }
+
+   /**
+    * public HeapNode insert(int id, int key)
+    *
+    * Creates a node which contains the given key, inserts it into the heap and indexes it by id.
+    * id must be non-negative and not belong to another node of the heap.
+    *
+    * Returns the newly created node.
+    */
+    public HeapNode insert(int id, int key) {
+        if (id < 0)
+            throw new IllegalArgumentException("Negative id: " + id);
+        if (id >= this.nodesById.length)
+            this.nodesById = Arrays.copyOf(this.nodesById, Math.max(id + 1, 2 * this.nodesById.length));
+        if (this.containsId(id))
+            throw new IllegalArgumentException("Id already in the heap: " + id);
+        HeapNode node = this.insert(key);
+        node.setId(id);
+        this.nodesById[id] = node;
+        return node;
+    }
+
+   /**
+    * public void deleteMin()
+    *
+    * Deletes the node containing the minimum key, and removes its id from the index.
+    *
+    */
+    @Override
+    public void deleteMin() {
+        HeapNode deleted = this.findMin();
+        super.deleteMin();
+        int id = deleted.getId();
+        if (id >= 0 && id < this.nodesById.length && this.nodesById[id] == deleted)
+            this.nodesById[id] = null;
+    }
+
+   /**
+    * public void clear()
+    *
+    * Removes all the elements from the heap, and their ids from the index. Takes time linear in the
+    * number of elements (not in the capacity of the index).
+    *
+    */
+    @Override
+    public void clear() {
+        if (!this.isEmpty()) {
+            ArrayDeque<HeapNode> siblingLists = new ArrayDeque<>();
+            siblingLists.push(this.getFirst());
+            while (!siblingLists.isEmpty()) {
+                HeapNode listFirst = siblingLists.pop();
+                HeapNode node = listFirst;
+                do {
+                    int id = node.getId();
+                    if (id >= 0 && id < this.nodesById.length && this.nodesById[id] == node)
+                        this.nodesById[id] = null;
+                    if (node.getChild() != null)
+                        siblingLists.push(node.getChild());
+                    node = node.getNext();
+                } while (node != listFirst);
+            }
+        }
+        super.clear();
+    }
+
+   /**
+    * public int findMinId()
+    *
+    * Returns the id of the node whose key is minimal, or -1 if the heap is empty or that node has no id.
+    *
+    */
+    public int findMinId() {
+        return this.isEmpty() ? -1 : this.findMin().getId();
+    }
+
+   /**
+    * public boolean containsId(int id)
+    *
+    * Returns true if and only if a node with the given id is in the heap. The index may still hold nodes
+    * that left the heap by meld or split, so the node must also be contained in the heap.
+    *
+    */
+    public boolean containsId(int id) {
+        return id >= 0 && id < this.nodesById.length && this.nodesById[id] != null
+                && this.contains(this.nodesById[id]);
+    }
+
+   /**
+    * public HeapNode nodeOf(int id)
+    *
+    * Returns the node with the given id, or null if there is no such node in the heap.
+    *
+    */
+    public HeapNode nodeOf(int id) {
+        return this.containsId(id) ? this.nodesById[id] : null;
+    }
+
+   /**
+    * public int keyOf(int id)
+    *
+    * Returns the key of the node with the given id, which must be in the heap.
+    *
+    */
+    public int keyOf(int id) {
+        return this.indexedNode(id).getKey();
+    }
+
+   /**
+    * public void decreaseKeyById(int id, int delta)
+    *
+    * Decreases the key of the node with the given id by a non-negative value delta.
+    *
+    */
+    public void decreaseKeyById(int id, int delta) {
+        this.decreaseKey(this.indexedNode(id), delta);
+    }
+
+   /**
+    * public void decreaseKeysById(int[] ids, int[] deltas)
+    *
+    * Decreases the key of the node with id ids[i] by deltas[i] for every i, like decreaseKeys.
+    * All the ids are checked before any key is changed.
+    *
+    */
+    public void decreaseKeysById(int[] ids, int[] deltas) {
+        if (ids.length != deltas.length)
+            throw new IllegalArgumentException("ids and deltas differ in length");
+        HeapNode[] nodes = new HeapNode[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            nodes[i] = this.indexedNode(ids[i]);
+        this.decreaseKeys(nodes, deltas);
+    }
+
+   /**
+    * public void deleteById(int id)
+    *
+    * Deletes the node with the given id from the heap.
+    *
+    */
+    public void deleteById(int id) {
+        this.delete(this.indexedNode(id));
+    }
+
+   /**
+    * public void cancelById(int id)
+    *
+    * Cancels the node with the given id, lazily (see cancel).
+    *
+    */
+    public void cancelById(int id) {
+        this.cancel(this.indexedNode(id));
+    }
+
+    /**
+     * private HeapNode indexedNode(int id)
+     *
+     * Returns the node with the given id, or throws IllegalArgumentException if it is not in the heap
+     *
+     */
+    private HeapNode indexedNode(int id) {
+        if (!this.containsId(id))
+            throw new IllegalArgumentException("Id not in the heap: " + id);
+        return this.nodesById[id];
+    }
+}
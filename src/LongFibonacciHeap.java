@@ -0,0 +1,395 @@
+/**
+ * LongFibonacciHeap
+ *
+ * A Fibonacci Heap over primitive long keys where every node also carries a value (payload).
+ * It is a hand specialization of GenericFibonacciHeap: keys are compared with the primitive operators
+ * and are never boxed.
+ *
+ * delete(x) doesn't compute a key smaller than the minimum: x is cut from its parent and then treated as
+ * minus infinity, so it also works for keys near the limits of the long range.
+ */
+public class LongFibonacciHeap<V>
+{
+    private Node<V> min;
+    private Node<V> first;
+    private int size;
+    private int numOfTrees;
+    private int nonMarked;
+    private Object[] buckets = new Object[0];
+
+    public LongFibonacciHeap() {
+
+    }
+
+   /**
+    * public boolean isEmpty()
+    *
+    * Returns true if and only if the heap is empty.
+    *
+    */
+    public boolean isEmpty() {
+        return this.first == null;
+    }
+
+   /**
+    * public Node<V> insert(long key, V value)
+    *
+    * Creates a node which contains the given key and value, and inserts it into the heap.
+    *
+    * Returns the newly created node.
+    */
+    public Node<V> insert(long key, V value) {
+        Node<V> newNode = new Node<>(key, value);
+        this.size++;
+        this.nonMarked++;
+        this.addRoot(newNode);
+        if (this.min == null || this.less(newNode, this.min))
+            this.min = newNode;
+        return newNode;
+    }
+
+   /**
+    * public Node<V> findMin()
+    *
+    * Returns the node of the heap whose key is minimal, or null if the heap is empty.
+    *
+    */
+    public Node<V> findMin() {
+        return this.min;
+    }
+
+   /**
+    * public Node<V> deleteMin()
+    *
+    * Deletes the node containing the minimum key, and returns it (or null if the heap is empty).
+    *
+    */
+    public Node<V> deleteMin() {
+        Node<V> deleted = this.min;
+        if (deleted == null)
+            return null;
+        this.size--;
+        this.nonMarked--; // Roots are never marked
+        this.removeRoot(deleted);
+        if (deleted.child != null) { // Deleted node's children become roots
+            Node<V> child = deleted.child;
+            do {
+                child.parent = null;
+                if (child.mark) {
+                    child.mark = false;
+                    this.nonMarked++;
+                }
+                child = child.next;
+            } while (child != deleted.child);
+            this.addRoots(deleted.child, deleted.rank);
+        }
+        deleted.child = null;
+        deleted.next = deleted;
+        deleted.prev = deleted;
+        if (this.first == null)
+            this.min = null;
+        else
+            this.consolidating();
+        return deleted;
+    }
+
+    /**
+     * private void consolidating()
+     *
+     * Perform consolidation/successive linking process on the heap
+     *
+     */
+    @SuppressWarnings("unchecked")
+    private void consolidating() {
+        int arrSize = FibonacciHeap.bucketsCount(this.size);
+        if (this.buckets.length < arrSize)
+            this.buckets = new Object[arrSize];
+        Object[] bucketsList = this.buckets;
+        int maxRank = 0;
+        Node<V> node = this.first;
+        for (int i = this.numOfTrees; i > 0; i--) {
+            Node<V> nodeNext = node.next;
+            int nodeRank = node.rank;
+            while (bucketsList[nodeRank] != null) { // Link as long as a tree of the same rank exists
+                node = this.linkTwoTrees(node, (Node<V>)bucketsList[nodeRank]);
+                bucketsList[nodeRank] = null;
+                nodeRank++;
+            }
+            bucketsList[nodeRank] = node;
+            maxRank = Math.max(maxRank, nodeRank);
+            node = nodeNext;
+        }
+        this.first = null;
+        this.min = null;
+        this.numOfTrees = 0;
+        for (int i = 0; i <= maxRank; i++) { // Rebuild the root list in rank order
+            Node<V> root = (Node<V>)bucketsList[i];
+            if (root == null)
+                continue;
+            bucketsList[i] = null;
+            this.addRoot(root);
+            if (this.min == null || this.less(root, this.min))
+                this.min = root;
+        }
+    }
+
+    /**
+     * private Node<V> linkTwoTrees(Node<V> a, Node<V> b)
+     *
+     * Gets two trees of the same rank, and hangs the tree whose root has the larger key under the other
+     * tree. Returns the root of the new tree.
+     *
+     */
+    private Node<V> linkTwoTrees(Node<V> a, Node<V> b) {
+        if (this.less(b, a)) {
+            Node<V> temp = b;
+            b = a;
+            a = temp;
+        }
+        if (a.child == null) {
+            b.next = b;
+            b.prev = b;
+        } else {
+            Node<V> lastChild = a.child.prev;
+            lastChild.next = b;
+            b.prev = lastChild;
+            b.next = a.child;
+            a.child.prev = b;
+        }
+        a.child = b;
+        b.parent = a;
+        a.rank++;
+        return a;
+    }
+
+   /**
+    * public void decreaseKey(Node<V> x, long delta)
+    *
+    * Decreases the key of the node x by a non-negative value delta, and applies cascading cuts if needed.
+    * The new key must not go below Long.MIN_VALUE: such a delta throws ArithmeticException, and the key is
+    * left unchanged, rather than wrapping around to a large key.
+    *
+    */
+    public void decreaseKey(Node<V> x, long delta) {
+        if (delta < 0)
+            throw new IllegalArgumentException("Negative delta");
+        x.key = Math.subtractExact(x.key, delta);
+        if (x.parent != null && x.key < x.parent.key)
+            this.cascadingCut(x);
+        if (x.key < this.min.key)
+            this.min = x;
+    }
+
+   /**
+    * public void delete(Node<V> x)
+    *
+    * Deletes the node x from the heap.
+    * It is assumed that x indeed belongs to the heap.
+    *
+    */
+    public void delete(Node<V> x) {
+        if (x.parent != null)
+            this.cascadingCut(x);
+        this.min = x; // x is treated as minus infinity, without changing its key
+        this.deleteMin();
+    }
+
+    /**
+     * private void cascadingCut(Node<V> x)
+     *
+     * Cuts x from its parent, and goes on cutting the marked ancestors
+     *
+     */
+    private void cascadingCut(Node<V> x) {
+        Node<V> xParent = x.parent;
+        while (true) {
+            this.cut(x, xParent);
+            if (xParent.parent == null)
+                return;
+            if (!xParent.mark) {
+                xParent.mark = true;
+                this.nonMarked--;
+                return;
+            }
+            x = xParent;
+            xParent = x.parent;
+        }
+    }
+
+    /**
+     * private void cut(Node<V> x, Node<V> xParent)
+     *
+     * Disconnects x from xParent and makes it a root
+     *
+     */
+    private void cut(Node<V> x, Node<V> xParent) {
+        if (x.next == x) // x is xParent's only child
+            xParent.child = null;
+        else {
+            if (xParent.child == x)
+                xParent.child = x.next;
+            x.prev.next = x.next;
+            x.next.prev = x.prev;
+        }
+        xParent.rank--;
+        x.parent = null;
+        if (x.mark) {
+            x.mark = false;
+            this.nonMarked++;
+        }
+        this.addRoot(x);
+    }
+
+   /**
+    * public void meld(LongFibonacciHeap<V> heap2)
+    *
+    * Melds heap2 with the current heap, and leaves heap2 empty.
+    *
+    */
+    public void meld(LongFibonacciHeap<V> heap2) {
+        if (heap2 == this || heap2.isEmpty())
+            return;
+        this.size += heap2.size;
+        this.nonMarked += heap2.nonMarked;
+        this.addRoots(heap2.first, heap2.numOfTrees);
+        if (this.min == null || this.less(heap2.min, this.min))
+            this.min = heap2.min;
+        heap2.first = null;
+        heap2.min = null;
+        heap2.size = 0;
+        heap2.numOfTrees = 0;
+        heap2.nonMarked = 0;
+    }
+
+    /**
+     * private void addRoot(Node<V> node)
+     *
+     * Adds a single node to the front of the root list
+     *
+     */
+    private void addRoot(Node<V> node) {
+        node.next = node;
+        node.prev = node;
+        this.addRoots(node, 1);
+    }
+
+    /**
+     * private void addRoots(Node<V> listFirst, int count)
+     *
+     * Splices a circular list of count roots into the front of the root list
+     *
+     */
+    private void addRoots(Node<V> listFirst, int count) {
+        this.numOfTrees += count;
+        if (this.first != null) {
+            Node<V> listLast = listFirst.prev;
+            Node<V> last = this.first.prev;
+            last.next = listFirst;
+            listFirst.prev = last;
+            listLast.next = this.first;
+            this.first.prev = listLast;
+        }
+        this.first = listFirst;
+    }
+
+    /**
+     * private void removeRoot(Node<V> node)
+     *
+     * Removes node from the root list
+     *
+     */
+    private void removeRoot(Node<V> node) {
+        this.numOfTrees--;
+        if (node.next == node) {
+            this.first = null;
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        if (this.first == node)
+            this.first = node.next;
+    }
+
+    /**
+     * private boolean less(Node<V> a, Node<V> b)
+     *
+     * Returns true if and only if a's key is smaller than b's key
+     *
+     */
+    private boolean less(Node<V> a, Node<V> b) {
+        return a.key < b.key;
+    }
+
+   /**
+    * public int size()
+    *
+    * Returns the number of elements in the heap.
+    *
+    */
+    public int size() {
+        return this.size;
+    }
+
+   /**
+    * public int potential()
+    *
+    * Returns the current potential of the heap: #trees + 2*#marked
+    *
+    */
+    public int potential() {
+        return this.numOfTrees + 2 * (this.size - this.nonMarked);
+    }
+
+    /**
+    * public static class Node<V>
+    *
+    * A node of LongFibonacciHeap, holding a key and a value.
+    */
+    public static class Node<V> {
+        private long key;
+        private V value;
+        private int rank;
+        private boolean mark;
+        private Node<V> child;
+        private Node<V> next;
+        private Node<V> prev;
+        private Node<V> parent;
+
+        private Node(long key, V value) {
+            this.key = key;
+            this.value = value;
+            this.next = this;
+            this.prev = this;
+        }
+
+        /**
+         * public long getKey()
+         *
+         * Returns node's key
+         *
+         */
+        public long getKey() {
+            return this.key;
+        }
+
+        /**
+         * public V getValue()
+         *
+         * Returns node's value
+         *
+         */
+        public V getValue() {
+            return this.value;
+        }
+
+        /**
+         * public void setValue(V value)
+         *
+         * Sets node's value. The value doesn't affect the node's position in the heap.
+         *
+         */
+        public void setValue(V value) {
+            this.value = value;
+        }
+    }
+}
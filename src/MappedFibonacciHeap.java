@@ -0,0 +1,374 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * MappedFibonacciHeap
+ *
+ * An implementation of a Fibonacci Heap over integers whose nodes live off the Java heap, in a memory-mapped
+ * file. No object is created per element: every node is a fixed size record of the file, identified by an
+ * int handle, and the file grows by whole chunks of records as the heap grows.
+ *
+ * File layout: a 64 bytes header (magic, version, chunk size, heap counters and min/first handles)
+ * followed by chunks of 2^chunkShift node records. A node record is 24 bytes:
+ *   key (int), child, next, prev, parent (int handles), rank (byte), mark (byte), 2 bytes of padding.
+ *
+ * The node records are changed in place, but the counters of the header are only written by flush() and
+ * close(). So the first change after a flush sets (and forces) a dirty flag in the header, which flush()
+ * and close() clear. Reopening a clean file with open() restores the heap as it was at the last flush,
+ * handles included, without re-inserting anything. A file left dirty (changed after its last flush by a
+ * process that didn't close it) can't be restored, and open() rejects it. open() checks the header against
+ * the file's length, but doesn't read the nodes.
+ */
+public class MappedFibonacciHeap extends HandleFibonacciHeap implements Closeable
+{
+    public static final int DEFAULT_CHUNK_SHIFT = 16;
+    public static final int MAX_CHUNK_SHIFT = 26;
+    private static final int MAGIC = 0x46494248;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int DIRTY = 40; // Header offset of the dirty flag
+    private static final int NODE_BYTES = 24;
+    private static final int KEY = 0;
+    private static final int CHILD = 4;
+    private static final int NEXT = 8;
+    private static final int PREV = 12;
+    private static final int PARENT = 16;
+    private static final int RANK = 20;
+    private static final int MARK = 21;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int chunkShift;
+    private final int chunkMask;
+    private MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private boolean dirty; // The records changed since the header was last written
+
+    private MappedFibonacciHeap(FileChannel channel, int chunkShift) throws IOException {
+        this.channel = channel;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1 << chunkShift) - 1;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+    }
+
+    /**
+     * public static MappedFibonacciHeap open(Path file)
+     *
+     * Opens the heap stored in file, or creates a new empty heap there if the file is empty or doesn't exist.
+     *
+     */
+    public static MappedFibonacciHeap open(Path file) throws IOException {
+        return open(file, DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * public static MappedFibonacciHeap open(Path file, int chunkShift)
+     *
+     * Same as open(file), where a newly created file grows by chunks of 2^chunkShift nodes.
+     * chunkShift must be between 0 and MAX_CHUNK_SHIFT. An existing file keeps the chunk size it was
+     * created with.
+     *
+     */
+    public static MappedFibonacciHeap open(Path file, int chunkShift) throws IOException {
+        if (chunkShift < 0 || chunkShift > MAX_CHUNK_SHIFT)
+            throw new IllegalArgumentException("Chunk shift must be between 0 and " + MAX_CHUNK_SHIFT + ": " + chunkShift);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                MappedFibonacciHeap heap = new MappedFibonacciHeap(channel, chunkShift);
+                heap.writeHeader();
+                return heap;
+            }
+            return load(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * private static MappedFibonacciHeap load(FileChannel channel)
+     *
+     * Reads the header of an existing heap file and maps its chunks
+     *
+     */
+    private static MappedFibonacciHeap load(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_BYTES)
+            throw new IOException("Not a heap file: too short");
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            throw new IOException("Not a heap file: bad magic or version");
+        int chunkShift = header.getInt(8);
+        int used = header.getInt(12);
+        if (chunkShift < 0 || chunkShift > MAX_CHUNK_SHIFT || used < 0)
+            throw new IOException("Corrupt heap file: bad chunk size or node count");
+        if (header.getInt(DIRTY) != 0)
+            throw new IOException("Heap file changed after its last flush, and wasn't closed");
+        long chunkBytes = (long)NODE_BYTES << chunkShift;
+        long chunksNeeded = ((long)used + (1 << chunkShift) - 1) >>> chunkShift;
+        if (channel.size() < HEADER_BYTES + chunksNeeded * chunkBytes)
+            throw new IOException("Corrupt heap file: truncated");
+        MappedFibonacciHeap heap = new MappedFibonacciHeap(channel, chunkShift);
+        heap.used = used;
+        heap.freeHead = header.getInt(16);
+        heap.numOfTrees = header.getInt(20);
+        heap.min = header.getInt(24);
+        heap.first = header.getInt(28);
+        heap.size = header.getInt(32);
+        heap.nonMarked = header.getInt(36);
+        if (heap.size < 0 || heap.size > used || heap.nonMarked < 0 || heap.nonMarked > heap.size
+                || heap.numOfTrees < 0 || heap.numOfTrees > heap.size || (heap.size == 0) != (heap.first == NIL)
+                || !heap.isHandle(heap.first) || !heap.isHandle(heap.min) || !heap.isHandle(heap.freeHead))
+            throw new IOException("Corrupt heap file: bad counters or handles");
+        heap.ensureCapacity(heap.used);
+        return heap;
+    }
+
+    /**
+     * private boolean isHandle(int node)
+     *
+     * Returns true if and only if node is NIL or one of the used slots
+     *
+     */
+    private boolean isHandle(int node) {
+        return node == NIL || (node >= 0 && node < this.used);
+    }
+
+    /**
+     * public static MappedFibonacciHeap copyOf(HandleFibonacciHeap heap, Path file)
+     *
+     * Creates (or overwrites) the heap file at path with a copy of heap, slot by slot, so handles of heap
+     * stay valid in the copy and the tree shapes are kept as they are. This is how an ArrayFibonacciHeap
+     * is saved: reopening the file with open() restores it without reading or linking any node.
+     * Returns the copy, which is flushed and still open.
+     *
+     */
+    public static MappedFibonacciHeap copyOf(HandleFibonacciHeap heap, Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedFibonacciHeap copy = new MappedFibonacciHeap(channel, DEFAULT_CHUNK_SHIFT);
+            copy.ensureCapacity(heap.used);
+            for (int node = 0; node < heap.used; node++) {
+                copy.setKey(node, heap.getKey(node));
+                copy.setChild(node, heap.getChild(node));
+                copy.setNext(node, heap.getNext(node));
+                copy.setPrev(node, heap.getPrev(node));
+                copy.setParent(node, heap.getParent(node));
+                copy.setRank(node, heap.getRank(node));
+                copy.setMark(node, heap.isMark(node));
+            }
+            copy.used = heap.used;
+            copy.freeHead = heap.freeHead;
+            copy.numOfTrees = heap.numOfTrees;
+            copy.min = heap.min;
+            copy.first = heap.first;
+            copy.size = heap.size;
+            copy.nonMarked = heap.nonMarked;
+            copy.flush();
+            return copy;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * private void writeHeader()
+     *
+     * Writes the heap's counters and handles to the file header
+     *
+     */
+    private void writeHeader() {
+        this.header.putInt(0, MAGIC);
+        this.header.putInt(4, VERSION);
+        this.header.putInt(8, this.chunkShift);
+        this.header.putInt(12, this.used);
+        this.header.putInt(16, this.freeHead);
+        this.header.putInt(20, this.numOfTrees);
+        this.header.putInt(24, this.min);
+        this.header.putInt(28, this.first);
+        this.header.putInt(32, this.size);
+        this.header.putInt(36, this.nonMarked);
+        this.header.putInt(DIRTY, 0);
+    }
+
+    /**
+     * private void markDirty()
+     *
+     * Sets and forces the dirty flag of the header before the first change since the last flush, so that
+     * the flag reaches the file before any changed record does
+     *
+     */
+    private void markDirty() {
+        if (this.dirty)
+            return;
+        this.dirty = true;
+        this.header.putInt(DIRTY, 1);
+        this.header.force();
+    }
+
+    /**
+     * public void flush()
+     *
+     * Forces all the heap's records to the file, then writes and forces the header, which clears its
+     * dirty flag
+     *
+     */
+    public void flush() {
+        for (MappedByteBuffer chunk : this.chunks)
+            chunk.force();
+        this.writeHeader();
+        this.header.force();
+        this.dirty = false;
+    }
+
+    /**
+     * public void close()
+     *
+     * Flushes the heap and closes its file. The heap must not be used afterwards.
+     *
+     */
+    @Override
+    public void close() throws IOException {
+        this.flush();
+        this.channel.close();
+    }
+
+    /**
+     * protected void clear()
+     *
+     * Makes the heap empty, which changes the counters of the header without touching any record
+     *
+     */
+    @Override
+    protected void clear() {
+        this.markDirty();
+        super.clear();
+    }
+
+    /**
+     * protected void ensureCapacity(int capacity)
+     *
+     * Maps (and thus grows the file by) as many new chunks as needed to hold capacity nodes
+     *
+     */
+    @Override
+    protected void ensureCapacity(int capacity) {
+        int chunksNeeded = (int)(((long)capacity + this.chunkMask) >>> this.chunkShift);
+        if (chunksNeeded <= this.chunks.length)
+            return;
+        long chunkBytes = (long)NODE_BYTES << this.chunkShift;
+        MappedByteBuffer[] newChunks = Arrays.copyOf(this.chunks, chunksNeeded);
+        try {
+            for (int i = this.chunks.length; i < chunksNeeded; i++)
+                newChunks[i] = this.channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_BYTES + i * chunkBytes, chunkBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.chunks = newChunks;
+    }
+
+    /**
+     * private MappedByteBuffer chunkOf(int node)
+     *
+     * Returns the chunk that holds node's record
+     *
+     */
+    private MappedByteBuffer chunkOf(int node) {
+        return this.chunks[node >>> this.chunkShift];
+    }
+
+    /**
+     * private int offsetOf(int node)
+     *
+     * Returns the offset of node's record inside its chunk
+     *
+     */
+    private int offsetOf(int node) {
+        return (node & this.chunkMask) * NODE_BYTES;
+    }
+
+    @Override
+    public int getKey(int node) {
+        return this.chunkOf(node).getInt(this.offsetOf(node) + KEY);
+    }
+
+    @Override
+    protected void setKey(int node, int key) {
+        this.markDirty();
+        this.chunkOf(node).putInt(this.offsetOf(node) + KEY, key);
+    }
+
+    @Override
+    protected int getChild(int node) {
+        return this.chunkOf(node).getInt(this.offsetOf(node) + CHILD);
+    }
+
+    @Override
+    protected void setChild(int node, int child) {
+        this.markDirty();
+        this.chunkOf(node).putInt(this.offsetOf(node) + CHILD, child);
+    }
+
+    @Override
+    protected int getNext(int node) {
+        return this.chunkOf(node).getInt(this.offsetOf(node) + NEXT);
+    }
+
+    @Override
+    protected void setNext(int node, int next) {
+        this.markDirty();
+        this.chunkOf(node).putInt(this.offsetOf(node) + NEXT, next);
+    }
+
+    @Override
+    protected int getPrev(int node) {
+        return this.chunkOf(node).getInt(this.offsetOf(node) + PREV);
+    }
+
+    @Override
+    protected void setPrev(int node, int prev) {
+        this.markDirty();
+        this.chunkOf(node).putInt(this.offsetOf(node) + PREV, prev);
+    }
+
+    @Override
+    protected int getParent(int node) {
+        return this.chunkOf(node).getInt(this.offsetOf(node) + PARENT);
+    }
+
+    @Override
+    protected void setParent(int node, int parent) {
+        this.markDirty();
+        this.chunkOf(node).putInt(this.offsetOf(node) + PARENT, parent);
+    }
+
+    @Override
+    protected int getRank(int node) {
+        return this.chunkOf(node).get(this.offsetOf(node) + RANK);
+    }
+
+    @Override
+    protected void setRank(int node, int rank) {
+        this.markDirty();
+        this.chunkOf(node).put(this.offsetOf(node) + RANK, (byte)rank);
+    }
+
+    @Override
+    protected boolean isMark(int node) {
+        return this.chunkOf(node).get(this.offsetOf(node) + MARK) != 0;
+    }
+
+    @Override
+    protected void setMark(int node, boolean mark) {
+        this.markDirty();
+        this.chunkOf(node).put(this.offsetOf(node) + MARK, (byte)(mark ? 1 : 0));
+    }
+}
@@ -0,0 +1,530 @@
+import java.util.ArrayDeque;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * MonotoneFibonacciHeap
+ *
+ * A FibonacciHeap for workloads whose deleted minimums never decrease (event simulations, Dijkstra with
+ * non-negative weights). While keys are monotone, i.e. no key goes below the last deleted minimum, the nodes
+ * are kept in a radix heap engine instead of trees (see RadixHeap): insert, decreaseKey and delete move a
+ * node between bucket lists in O(1), and deleteMin redistributes one bucket instead of consolidating.
+ * The engine reuses the fields of HeapNode (next and prev chain the buckets, rank holds the bucket index),
+ * so nodes handed out keep working after the heap switches to trees.
+ *
+ * Mode.STRICT: the caller tells that keys are monotone, and a key below the last deleted minimum (inserted,
+ * decreased to, or melded in) is rejected with IllegalArgumentException, leaving the heap unchanged.
+ * Mode.DETECT: the first such key moves all the nodes to the Fibonacci trees, as single node trees, in
+ * O(size), and the heap goes on as a plain FibonacciHeap. clear() returns to the radix engine.
+ *
+ * While in the radix engine, potential and countersRep describe every node as a tree of rank 0, which it is
+ * once moved to the trees. getFirst, getLast, topK, ascendingKeys and sortedKeys need the trees, so they move
+ * the nodes there first (the heap then stays a FibonacciHeap, still checking keys in Mode.STRICT).
+ */
+public class MonotoneFibonacciHeap extends FibonacciHeap
+{
+    private static final int NUM_OF_BUCKETS = 33;
+    private final Mode mode;
+    private HeapNode[] buckets = new HeapNode[NUM_OF_BUCKETS]; // null once the nodes moved to the trees
+    private int radixSize;
+    private HeapNode cachedMin;
+    private int last = Integer.MIN_VALUE;
+    private boolean inDelete;
+
+    /**
+     * public enum Mode
+     *
+     * What a key below the last deleted minimum does: STRICT rejects it, DETECT leaves the radix engine.
+     */
+    public enum Mode {
+        STRICT,
+        DETECT
+    }
+
+    public MonotoneFibonacciHeap(Mode mode) {
+        this(mode, HeapMetrics.NOOP);
+    }
+
+    public MonotoneFibonacciHeap(Mode mode, HeapMetrics metrics) {
+        super(metrics);
+        this.mode = mode;
+    }
+
+   /**
+    * public Mode getMode()
+    *
+    * Returns the mode the heap was created with.
+    *
+    */
+    public Mode getMode() {
+        return this.mode;
+    }
+
+   /**
+    * public boolean isRadixEngine()
+    *
+    * Returns true if and only if the nodes are still kept in the radix engine.
+    *
+    */
+    public boolean isRadixEngine() {
+        return this.buckets != null;
+    }
+
+   /**
+    * public int lastDeletedMin()
+    *
+    * Returns the last key deleted by deleteMin, or Integer.MIN_VALUE if none was deleted yet.
+    *
+    */
+    public int lastDeletedMin() {
+        return this.last;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (this.buckets != null) ? this.radixSize == 0 : super.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return (this.buckets != null) ? this.radixSize : super.size();
+    }
+
+    @Override
+    public HeapNode insert(int key) {
+        this.checkMonotone(key);
+        if (this.buckets == null)
+            return super.insert(key);
+        HeapNode node = new HeapNode(key);
+        this.own(node);
+        this.addToBucket(node);
+        this.radixSize++;
+        if (this.cachedMin != null && key < this.cachedMin.getKey())
+            this.cachedMin = node;
+        return node;
+    }
+
+    @Override
+    public void insertAll(int[] keys, HeapNode[] nodes, boolean consolidate) {
+        for (int key : keys)
+            this.checkMonotone(key);
+        if (this.buckets == null) {
+            super.insertAll(keys, nodes, consolidate);
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) { // Nothing to consolidate in the radix engine
+            HeapNode node = this.insert(keys[i]);
+            if (nodes != null)
+                nodes[i] = node;
+        }
+    }
+
+    @Override
+    public void insertAllLinked(int[] keys, HeapNode[] nodes) {
+        for (int key : keys)
+            this.checkMonotone(key);
+        if (this.buckets == null)
+            super.insertAllLinked(keys, nodes);
+        else // No trees to build in the radix engine
+            this.insertAll(keys, nodes, false);
+    }
+
+    /**
+     * public HeapNode findMin()
+     *
+     * Returns the node whose key is minimal. In the radix engine the first non-empty bucket is scanned
+     * (without moving its nodes), and the result is cached until the minimum changes.
+     *
+     */
+    @Override
+    public HeapNode findMin() {
+        if (this.buckets == null)
+            return super.findMin();
+        if (this.radixSize == 0)
+            return null;
+        if (this.cachedMin == null) {
+            int i = 0;
+            while (this.buckets[i] == null)
+                i++;
+            HeapNode min = this.buckets[i];
+            for (HeapNode node = min.getNext(); node != null; node = node.getNext()) {
+                if (node.getKey() < min.getKey())
+                    min = node;
+            }
+            this.cachedMin = min;
+        }
+        return this.cachedMin;
+    }
+
+    @Override
+    public HeapNode getMin() {
+        return (this.buckets != null) ? this.findMin() : super.getMin();
+    }
+
+    @Override
+    public void deleteMin() {
+        if (this.buckets == null) {
+            if (!this.inDelete) // delete(x) ends with a deleteMin of x, which may not be the minimum
+                this.last = super.findMin().getKey();
+            super.deleteMin();
+            return;
+        }
+        HeapNode min = this.findMin();
+        if (this.buckets[0] == null)
+            this.redistribute(); // Moves min, and the other nodes of its key, to bucket 0
+        this.removeFromBucket(min);
+        this.disown(min);
+        this.radixSize--;
+        this.cachedMin = null;
+    }
+
+    @Override
+    public void decreaseKey(HeapNode x, int delta) {
+        this.checkOwner(x);
+        this.checkMonotone(x.getKey() - delta);
+        if (this.buckets == null) {
+            super.decreaseKey(x, delta);
+            return;
+        }
+        this.removeFromBucket(x);
+        x.decreaseKey(delta);
+        this.addToBucket(x);
+        if (this.cachedMin != null && x.getKey() < this.cachedMin.getKey())
+            this.cachedMin = x;
+    }
+
+    /**
+     * public void decreaseKeys(HeapNode[] nodes, int[] deltas)
+     *
+     * Decreases the key of nodes[i] by deltas[i] for every i. All the nodes, and in Mode.STRICT all the new
+     * keys, are checked before any key is changed.
+     *
+     */
+    @Override
+    public void decreaseKeys(HeapNode[] nodes, int[] deltas) {
+        if (nodes.length != deltas.length)
+            throw new IllegalArgumentException("nodes and deltas differ in length");
+        for (HeapNode node : nodes)
+            this.checkOwner(node);
+        if (this.mode == Mode.STRICT) {
+            for (int i = 0; i < nodes.length; i++)
+                this.checkMonotone(nodes[i].getKey() - deltas[i]);
+        }
+        if (this.buckets == null) {
+            super.decreaseKeys(nodes, deltas);
+            return;
+        }
+        for (int i = 0; i < nodes.length; i++) // A node decreased twice must be checked against its new key
+            this.decreaseKey(nodes[i], deltas[i]);
+    }
+
+    @Override
+    public void delete(HeapNode x) {
+        if (this.buckets == null) {
+            this.inDelete = true;
+            try {
+                super.delete(x);
+            } finally {
+                this.inDelete = false;
+            }
+            return;
+        }
+        this.checkOwner(x);
+        this.removeFromBucket(x);
+        this.disown(x);
+        this.radixSize--;
+        if (x == this.cachedMin)
+            this.cachedMin = null;
+    }
+
+    /**
+     * public void cancel(HeapNode x)
+     *
+     * Cancels x lazily in the trees (see FibonacciHeap.cancel). The radix engine deletes it right away, in O(1).
+     *
+     */
+    @Override
+    public void cancel(HeapNode x) {
+        if (this.buckets != null) {
+            this.delete(x);
+            return;
+        }
+        this.inDelete = true; // Cancelling the min deletes it, which doesn't raise the last deleted min
+        try {
+            super.cancel(x);
+        } finally {
+            this.inDelete = false;
+        }
+    }
+
+    /**
+     * public void meld(FibonacciHeap heap2)
+     *
+     * Melds heap2 into the current heap, which takes its nodes over, and leaves heap2 empty. In the radix
+     * engine heap2's nodes are moved into the buckets (flattening its trees), in O(size of heap2).
+     *
+     */
+    @Override
+    public void meld(FibonacciHeap heap2) {
+        if (heap2 == this)
+            throw new IllegalArgumentException("A heap can't be melded into itself");
+        if (heap2.isEmpty())
+            return;
+        this.checkMonotone(heap2.findMin().getKey());
+        if (this.buckets == null) {
+            if (heap2 instanceof MonotoneFibonacciHeap)
+                ((MonotoneFibonacciHeap)heap2).leaveRadixEngine();
+            super.meld(heap2);
+            return;
+        }
+        int moved = heap2.size();
+        this.adoptNodesOf(heap2);
+        if (heap2 instanceof MonotoneFibonacciHeap && ((MonotoneFibonacciHeap)heap2).buckets != null) {
+            HeapNode[] lists = ((MonotoneFibonacciHeap)heap2).buckets;
+            heap2.clear();
+            for (HeapNode list : lists) {
+                while (list != null) {
+                    HeapNode next = list.getNext();
+                    this.addToBucket(list);
+                    list = next;
+                }
+            }
+        } else {
+            HeapNode heap2First = heap2.getFirst();
+            heap2.clear(); // Before the trees are taken apart, as subclasses may walk them
+            ArrayDeque<HeapNode> siblingLists = new ArrayDeque<>();
+            siblingLists.push(heap2First);
+            while (!siblingLists.isEmpty()) {
+                HeapNode listFirst = siblingLists.pop();
+                HeapNode node = listFirst;
+                do {
+                    HeapNode next = node.getNext();
+                    if (node.getChild() != null)
+                        siblingLists.push(node.getChild());
+                    node.setChild(null);
+                    node.setParent(null);
+                    node.setMark(false);
+                    if (!node.isCancelled()) // heap2's tombstones are left behind
+                        this.addToBucket(node);
+                    node = next;
+                } while (node != listFirst);
+            }
+        }
+        this.radixSize += moved;
+        this.cachedMin = null;
+    }
+
+    /**
+     * public void clear()
+     *
+     * Removes all the elements from the heap, which goes back to the radix engine and accepts any key again.
+     *
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        this.buckets = new HeapNode[NUM_OF_BUCKETS];
+        this.radixSize = 0;
+        this.cachedMin = null;
+        this.last = Integer.MIN_VALUE;
+    }
+
+    @Override
+    public void compact() {
+        if (this.buckets == null) // Nothing to consolidate in the radix engine
+            super.compact();
+    }
+
+    @Override
+    public boolean compact(int budget) {
+        return (this.buckets == null) ? super.compact(budget) : true;
+    }
+
+   /**
+    * public void checkInvariants()
+    *
+    * Checks the trees (see FibonacciHeap.checkInvariants), and in the radix engine the buckets: every node
+    * is in the bucket of its key relative to the last deleted minimum, with its prev pointer and rank in
+    * order, and the buckets hold radixSize nodes. In Mode.STRICT no key is below the last deleted minimum.
+    *
+    */
+    @Override
+    public void checkInvariants() {
+        super.checkInvariants();
+        if (this.buckets == null) {
+            if (this.mode == Mode.STRICT && !super.isEmpty() && super.findMin().getKey() < this.last)
+                throw invariantBroken("key " + super.findMin().getKey() + " below the last deleted minimum " + this.last);
+            return;
+        }
+        int count = 0;
+        for (int i = 0; i < this.buckets.length; i++) {
+            HeapNode prev = null;
+            for (HeapNode node = this.buckets[i]; node != null; node = node.getNext()) {
+                if (count++ == this.radixSize)
+                    throw invariantBroken("the buckets hold more than " + this.radixSize + " nodes");
+                if (node.getPrev() != prev)
+                    throw invariantBroken("bucket " + i + " broken before key " + node.getKey());
+                if (node.getKey() < this.last)
+                    throw invariantBroken("key " + node.getKey() + " below the last deleted minimum " + this.last);
+                if (node.getRank() != i || 32 - Integer.numberOfLeadingZeros(node.getKey() ^ this.last) != i)
+                    throw invariantBroken("key " + node.getKey() + " in bucket " + i);
+                if (!this.contains(node))
+                    throw invariantBroken("key " + node.getKey() + " doesn't belong to the heap");
+                prev = node;
+            }
+        }
+        if (count != this.radixSize)
+            throw invariantBroken("radixSize is " + this.radixSize + " but the buckets hold " + count + " nodes");
+    }
+
+    @Override
+    public int[] countersRep() {
+        if (this.buckets == null)
+            return super.countersRep();
+        return (this.radixSize == 0) ? new int[0] : new int[] {this.radixSize};
+    }
+
+    @Override
+    public int nonMarked() {
+        return (this.buckets != null) ? this.radixSize : super.nonMarked();
+    }
+
+    @Override
+    public int potential() {
+        return (this.buckets != null) ? this.radixSize : super.potential();
+    }
+
+    @Override
+    public HeapNode getFirst() {
+        this.leaveRadixEngine();
+        return super.getFirst();
+    }
+
+    @Override
+    public HeapNode getLast() {
+        this.leaveRadixEngine();
+        return super.getLast();
+    }
+
+    @Override
+    public int[] topK(int k) {
+        this.leaveRadixEngine();
+        return super.topK(k);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt ascendingKeys() {
+        this.leaveRadixEngine();
+        return super.ascendingKeys();
+    }
+
+    @Override
+    public IntStream sortedKeys() {
+        this.leaveRadixEngine();
+        return super.sortedKeys();
+    }
+
+    /**
+     * private void checkMonotone(int key)
+     *
+     * Rejects key in Mode.STRICT, or leaves the radix engine in Mode.DETECT, if key is below the last
+     * deleted minimum
+     *
+     */
+    private void checkMonotone(int key) {
+        if (key >= this.last)
+            return;
+        if (this.mode == Mode.STRICT)
+            throw new IllegalArgumentException("Key " + key + " is below the last deleted minimum " + this.last);
+        this.leaveRadixEngine();
+    }
+
+    /**
+     * private void leaveRadixEngine()
+     *
+     * Moves all the nodes from the buckets to the root list, as unmarked trees of rank 0, without linking
+     *
+     */
+    private void leaveRadixEngine() {
+        if (this.buckets == null)
+            return;
+        HeapNode[] lists = this.buckets;
+        HeapNode min = this.findMin();
+        this.buckets = null;
+        this.cachedMin = null;
+        HeapNode first = null;
+        HeapNode lastRoot = null;
+        for (HeapNode list : lists) {
+            while (list != null) {
+                HeapNode next = list.getNext();
+                list.setRank(0);
+                if (first == null)
+                    first = list;
+                else
+                    lastRoot.updateNextNode(list);
+                lastRoot = list;
+                list = next;
+            }
+        }
+        if (first != null) {
+            lastRoot.updateNextNode(first);
+            this.restore(first, min, this.radixSize, this.radixSize, this.radixSize);
+        }
+        this.radixSize = 0;
+    }
+
+    /**
+     * private void redistribute()
+     *
+     * Makes the smallest key of the first non-empty bucket the new last, and moves the nodes of that
+     * bucket to the buckets of their keys relative to it. Called by deleteMin when bucket 0 is empty.
+     *
+     */
+    private void redistribute() {
+        int i = 1;
+        while (this.buckets[i] == null)
+            i++;
+        HeapNode list = this.buckets[i];
+        this.buckets[i] = null;
+        int minKey = list.getKey();
+        for (HeapNode node = list.getNext(); node != null; node = node.getNext())
+            minKey = Math.min(minKey, node.getKey());
+        this.last = minKey;
+        while (list != null) {
+            HeapNode next = list.getNext();
+            this.addToBucket(list);
+            list = next;
+        }
+    }
+
+    /**
+     * private void addToBucket(HeapNode node)
+     *
+     * Adds node to the front of the bucket of its key: the position of the highest bit in which the key
+     * and last differ. The bucket index is kept in node's rank.
+     *
+     */
+    private void addToBucket(HeapNode node) {
+        int i = 32 - Integer.numberOfLeadingZeros(node.getKey() ^ this.last);
+        HeapNode head = this.buckets[i];
+        node.setRank(i);
+        node.setPrev(null);
+        node.setNext(head);
+        if (head != null)
+            head.setPrev(node);
+        this.buckets[i] = node;
+    }
+
+    private void removeFromBucket(HeapNode node) {
+        HeapNode prev = node.getPrev();
+        HeapNode next = node.getNext();
+        if (prev == null)
+            this.buckets[node.getRank()] = next;
+        else
+            prev.setNext(next);
+        if (next != null)
+            next.setPrev(prev);
+        node.setNext(node);
+        node.setPrev(node);
+    }
+}
@@ -0,0 +1,286 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MultiQueueFibonacciHeap
+ *
+ * A relaxed, thread-safe priority queue of integers made of many independent FibonacciHeap shards, each
+ * guarded by its own lock (the MultiQueue scheme). insert puts the key in a random shard. deleteMin samples
+ * a few random shards, reads their cached minimums without locking, and deletes the smallest of them.
+ *
+ * The deleted key is not always the global minimum. Its rank error (the number of smaller keys left in the
+ * queue) is controlled by the number of shards and the number of sampled shards ("choices"): with 2 choices
+ * it is O(#shards) in expectation, and sampling all the shards makes the queue exact up to concurrent
+ * operations. The actual rank error can be measured by sampling a fraction of the deleteMin calls, see
+ * setRankErrorSamplingPeriod.
+ */
+public class MultiQueueFibonacciHeap
+{
+    private static final int EMPTY = Integer.MAX_VALUE;
+    private static final int MAX_SAMPLING_ROUNDS = 16;
+    private final Shard[] shards;
+    private final int choices;
+    private final LongAdder count = new LongAdder(); // Striped, so that the shards don't meet on a shared counter
+    private volatile int samplingPeriod;
+    private final AtomicLong deleteMinCalls = new AtomicLong();
+    private final LongAdder sampledCalls = new LongAdder();
+    private final LongAdder rankErrorSum = new LongAdder();
+    private final AtomicLong maxRankError = new AtomicLong();
+
+    /**
+     * private static class Shard
+     *
+     * One FibonacciHeap, its lock, and a copy of its minimal key that can be read without the lock.
+     */
+    private static class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final FibonacciHeap heap = new FibonacciHeap();
+        private volatile int minKey = EMPTY;
+        private volatile boolean empty = true;
+
+        /**
+         * private void updateMinCache()
+         *
+         * Copies the heap's minimum to the unlocked fields. Must be called while holding the lock.
+         *
+         */
+        private void updateMinCache() {
+            this.empty = this.heap.isEmpty();
+            this.minKey = this.empty ? EMPTY : this.heap.findMin().getKey();
+        }
+    }
+
+    public MultiQueueFibonacciHeap() {
+        this(Runtime.getRuntime().availableProcessors(), 2, 2);
+    }
+
+    /**
+     * public MultiQueueFibonacciHeap(int numOfThreads, int shardsPerThread, int choices)
+     *
+     * Creates a queue of numOfThreads * shardsPerThread shards, whose deleteMin samples choices shards
+     * (at least 2, at most all the shards).
+     *
+     */
+    public MultiQueueFibonacciHeap(int numOfThreads, int shardsPerThread, int choices) {
+        int numOfShards = Math.max(numOfThreads * shardsPerThread, 1);
+        this.shards = new Shard[numOfShards];
+        for (int i = 0; i < numOfShards; i++)
+            this.shards[i] = new Shard();
+        this.choices = Math.min(Math.max(choices, 2), numOfShards);
+    }
+
+   /**
+    * public void insert(int key)
+    *
+    * Inserts the key into a random shard. Starts at a random shard and moves to the next one while shards
+    * are locked by other threads, and waits for the last one after a whole pass.
+    *
+    */
+    public void insert(int key) {
+        this.count.increment(); // Counted before the key can be deleted, so its decrement comes after
+        int i = ThreadLocalRandom.current().nextInt(this.shards.length);
+        Shard shard = this.shards[i];
+        for (int tries = 1; !shard.lock.tryLock(); tries++) {
+            if (tries == this.shards.length) { // All the shards are busy, wait for one
+                shard.lock.lock();
+                break;
+            }
+            i = (i + 1 == this.shards.length) ? 0 : i + 1;
+            shard = this.shards[i];
+        }
+        try {
+            shard.heap.insert(key);
+            shard.updateMinCache();
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+   /**
+    * public Integer deleteMin()
+    *
+    * Deletes and returns the smallest key among the minimums of choices random shards,
+    * or returns null if the queue is empty.
+    * If the sampled shards keep being empty or locked, all the shards are scanned instead.
+    *
+    */
+    public Integer deleteMin() {
+        ThreadLocalRandom rand = ThreadLocalRandom.current();
+        while (this.count.sum() > 0) {
+            for (int round = 0; round < MAX_SAMPLING_ROUNDS; round++) {
+                Shard best = null;
+                for (int i = 0; i < this.choices; i++) {
+                    Shard shard = this.shards[rand.nextInt(this.shards.length)];
+                    if (!shard.empty && (best == null || shard.minKey < best.minKey))
+                        best = shard;
+                }
+                Integer key = (best == null) ? null : this.tryDeleteMin(best, false);
+                if (key != null)
+                    return key;
+            }
+            for (Shard shard : this.shards) { // Few keys left, or a lot of contention
+                Integer key = this.tryDeleteMin(shard, true);
+                if (key != null)
+                    return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * private Integer tryDeleteMin(Shard shard, boolean wait)
+     *
+     * Deletes and returns the minimum of shard, or returns null if it is empty, or if it is locked
+     * and wait is false.
+     *
+     */
+    private Integer tryDeleteMin(Shard shard, boolean wait) {
+        if (wait)
+            shard.lock.lock();
+        else if (!shard.lock.tryLock())
+            return null;
+        int key;
+        try {
+            if (shard.heap.isEmpty())
+                return null;
+            key = shard.heap.findMin().getKey();
+            shard.heap.deleteMin();
+            shard.updateMinCache();
+        } finally {
+            shard.lock.unlock();
+        }
+        this.count.decrement();
+        int period = this.samplingPeriod;
+        if (period > 0 && this.deleteMinCalls.incrementAndGet() % period == 0)
+            this.recordRankError(key);
+        return key;
+    }
+
+   /**
+    * public int size()
+    *
+    * Returns the number of keys in the queue. While other threads insert or delete, the count is a
+    * moment-in-time estimate (see LongAdder.sum), never negative.
+    *
+    */
+    public int size() {
+        return (int) Math.max(this.count.sum(), 0);
+    }
+
+   /**
+    * public boolean isEmpty()
+    *
+    * Returns true if and only if the queue is empty.
+    *
+    */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+   /**
+    * public int numOfShards()
+    *
+    * Returns the number of shards of the queue.
+    *
+    */
+    public int numOfShards() {
+        return this.shards.length;
+    }
+
+   /**
+    * public void setRankErrorSamplingPeriod(int period)
+    *
+    * Makes one of every period deleteMin calls measure its rank error (0 disables the measurement).
+    * A measurement counts the keys smaller than the deleted key, locking one shard at a time,
+    * so it costs about the rank error itself plus the number of trees of each shard.
+    *
+    */
+    public void setRankErrorSamplingPeriod(int period) {
+        this.samplingPeriod = Math.max(period, 0);
+    }
+
+    /**
+     * private void recordRankError(int key)
+     *
+     * Counts the keys in the queue that are smaller than key, and adds the count to the statistics
+     *
+     */
+    private void recordRankError(int key) {
+        long rankError = 0;
+        for (Shard shard : this.shards) {
+            if (shard.empty || shard.minKey >= key)
+                continue;
+            shard.lock.lock();
+            try {
+                rankError += countSmallerKeys(shard.heap, key);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        this.sampledCalls.increment();
+        this.rankErrorSum.add(rankError);
+        this.maxRankError.accumulateAndGet(rankError, Math::max);
+    }
+
+    /**
+     * private static long countSmallerKeys(FibonacciHeap heap, int key)
+     *
+     * Returns the number of keys in heap that are smaller than key. Thanks to the heap order,
+     * the subtrees whose root isn't smaller than key are skipped.
+     *
+     */
+    private static long countSmallerKeys(FibonacciHeap heap, int key) {
+        if (heap.isEmpty())
+            return 0;
+        long smaller = 0;
+        ArrayDeque<FibonacciHeap.HeapNode> siblingLists = new ArrayDeque<>();
+        siblingLists.push(heap.getFirst());
+        while (!siblingLists.isEmpty()) {
+            FibonacciHeap.HeapNode listFirst = siblingLists.pop();
+            FibonacciHeap.HeapNode node = listFirst;
+            do {
+                if (node.getKey() < key) {
+                    smaller++;
+                    if (node.getChild() != null)
+                        siblingLists.push(node.getChild());
+                }
+                node = node.getNext();
+            } while (node != listFirst);
+        }
+        return smaller;
+    }
+
+   /**
+    * public long sampledRankErrors()
+    *
+    * Returns the number of deleteMin calls whose rank error was measured.
+    *
+    */
+    public long sampledRankErrors() {
+        return this.sampledCalls.sum();
+    }
+
+   /**
+    * public double averageRankError()
+    *
+    * Returns the average measured rank error, or 0 if nothing was measured.
+    *
+    */
+    public double averageRankError() {
+        long samples = this.sampledCalls.sum();
+        return (samples == 0) ? 0 : (double)this.rankErrorSum.sum() / samples;
+    }
+
+   /**
+    * public long maxRankError()
+    *
+    * Returns the largest measured rank error.
+    *
+    */
+    public long maxRankError() {
+        return this.maxRankError.get();
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * PairingHeap
+ *
+ * A pairing heap of integers: a single heap-ordered tree, where every node points to its leftmost child,
+ * its right sibling, and its left sibling (or parent, for a leftmost child). insert, meld and decreaseKey
+ * link a tree with the root in O(1); deleteMin combines the root's children with the two-pass pairing
+ * (link pairs left to right, then link the results right to left), in O(log n) amortized.
+ *
+ * Both passes are loops, so deep or wide trees don't risk a StackOverflowError.
+ */
+public class PairingHeap implements PriorityHeap<PairingHeap.Node, PairingHeap>
+{
+    private Node root;
+    private int size;
+
+    @Override
+    public Node insert(int key) {
+        Node node = new Node(key);
+        this.root = (this.root == null) ? node : link(this.root, node);
+        this.size++;
+        return node;
+    }
+
+    @Override
+    public Node findMin() {
+        return this.root;
+    }
+
+    @Override
+    public int getKey(Node node) {
+        return node.key;
+    }
+
+    @Override
+    public void deleteMin() {
+        Node oldRoot = this.root;
+        this.root = mergePairs(oldRoot.child);
+        oldRoot.child = null;
+        this.size--;
+    }
+
+    @Override
+    public void decreaseKey(Node x, int delta) {
+        x.key -= delta;
+        if (x == this.root)
+            return;
+        detach(x);
+        this.root = link(this.root, x);
+    }
+
+    @Override
+    public void delete(Node x) {
+        if (x == this.root) {
+            this.deleteMin();
+            return;
+        }
+        detach(x);
+        Node subtree = mergePairs(x.child);
+        x.child = null;
+        if (subtree != null)
+            this.root = link(this.root, subtree);
+        this.size--;
+    }
+
+    @Override
+    public void meld(PairingHeap heap2) {
+        if (heap2 == this || heap2.root == null)
+            return;
+        this.root = (this.root == null) ? heap2.root : link(this.root, heap2.root);
+        this.size += heap2.size;
+        heap2.root = null;
+        heap2.size = 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * private static Node link(Node a, Node b)
+     *
+     * Gets two tree roots and makes the one with the larger key the leftmost child of the other.
+     * Returns the root of the new tree.
+     *
+     */
+    private static Node link(Node a, Node b) {
+        if (b.key < a.key) {
+            Node temp = a;
+            a = b;
+            b = temp;
+        }
+        b.next = a.child;
+        if (a.child != null)
+            a.child.prev = b;
+        b.prev = a;
+        a.child = b;
+        return a;
+    }
+
+    /**
+     * private static void detach(Node x)
+     *
+     * Removes the subtree of the non-root node x from its sibling list
+     *
+     */
+    private static void detach(Node x) {
+        if (x.prev.child == x) // x is a leftmost child, prev is its parent
+            x.prev.child = x.next;
+        else
+            x.prev.next = x.next;
+        if (x.next != null)
+            x.next.prev = x.prev;
+        x.next = null;
+        x.prev = null;
+    }
+
+    /**
+     * private static Node mergePairs(Node first)
+     *
+     * Combines the sibling list starting at first into a single tree with the two-pass pairing, and
+     * returns its root (null if the list is empty). The results of the first pass are kept in a list
+     * threaded through next, in reverse order, which is the order the second pass needs.
+     *
+     */
+    private static Node mergePairs(Node first) {
+        Node pairs = null;
+        Node a = first;
+        while (a != null) {
+            Node b = a.next;
+            Node rest = (b == null) ? null : b.next;
+            a.next = null;
+            a.prev = null;
+            Node tree = a;
+            if (b != null) {
+                b.next = null;
+                b.prev = null;
+                tree = link(a, b);
+            }
+            tree.next = pairs;
+            pairs = tree;
+            a = rest;
+        }
+        if (pairs == null)
+            return null;
+        Node result = pairs;
+        pairs = pairs.next;
+        result.next = null;
+        while (pairs != null) {
+            Node nextPair = pairs.next;
+            pairs.next = null;
+            result = link(result, pairs);
+            pairs = nextPair;
+        }
+        return result;
+    }
+
+    /**
+    * public static class Node
+    *
+    * A node of PairingHeap.
+    */
+    public static class Node {
+        private int key;
+        private Node child;
+        private Node next;
+        private Node prev;
+
+        private Node(int key) {
+            this.key = key;
+        }
+
+        /**
+         * public int getKey()
+         *
+         * Returns node's key
+         *
+         */
+        public int getKey() {
+            return this.key;
+        }
+    }
+}
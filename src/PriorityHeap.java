@@ -0,0 +1,86 @@
+/**
+ * PriorityHeap
+ *
+ * The operations of FibonacciHeap's public API, shared by the heaps of this package, so that callers
+ * (graph searches, benchmarks, HeapSelector) can switch implementations. N is the type of the node handles
+ * returned by insert, and H the implementing heap type, which meld accepts.
+ *
+ * Implementations: FibonacciHeap, DaryHeap, PairingHeap, RankPairingHeap and RadixHeap (monotone keys only).
+ */
+public interface PriorityHeap<N, H extends PriorityHeap<N, H>>
+{
+   /**
+    * public N insert(int key)
+    *
+    * Creates a node which contains the given key, inserts it into the heap and returns it.
+    *
+    */
+    N insert(int key);
+
+   /**
+    * public N findMin()
+    *
+    * Returns the node of the heap whose key is minimal, or null if the heap is empty.
+    *
+    */
+    N findMin();
+
+   /**
+    * public int getKey(N node)
+    *
+    * Returns the key of a node of the heap.
+    *
+    */
+    int getKey(N node);
+
+   /**
+    * public void deleteMin()
+    *
+    * Deletes the node containing the minimum key. It is assumed that the heap is not empty.
+    *
+    */
+    void deleteMin();
+
+   /**
+    * public void decreaseKey(N x, int delta)
+    *
+    * Decreases the key of the node x by a non-negative value delta.
+    * It is assumed that x indeed belongs to the heap.
+    *
+    */
+    void decreaseKey(N x, int delta);
+
+   /**
+    * public void delete(N x)
+    *
+    * Deletes the node x from the heap. It is assumed that x indeed belongs to the heap.
+    *
+    */
+    void delete(N x);
+
+   /**
+    * public void meld(H heap2)
+    *
+    * Moves all the nodes of heap2 into the current heap.
+    *
+    */
+    void meld(H heap2);
+
+   /**
+    * public int size()
+    *
+    * Returns the number of elements in the heap.
+    *
+    */
+    int size();
+
+   /**
+    * public boolean isEmpty()
+    *
+    * Returns true if and only if the heap is empty.
+    *
+    */
+    default boolean isEmpty() {
+        return this.size() == 0;
+    }
+}
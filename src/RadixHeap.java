@@ -0,0 +1,216 @@
+/**
+ * RadixHeap
+ *
+ * A radix heap for monotone integer keys: no key may be smaller than the last key deleted by deleteMin
+ * (insert and decreaseKey below it throw IllegalArgumentException). This holds for Dijkstra with
+ * non-negative weights and for event simulations.
+ *
+ * Nodes are kept in 33 buckets: bucket 0 holds the keys equal to last (the last deleted minimum), and
+ * bucket i > 0 the keys whose highest bit that differs from last is bit i-1. insert, decreaseKey and delete
+ * just move a node between doubly linked bucket lists, in O(1). When bucket 0 is empty, findMin/deleteMin
+ * take the first non-empty bucket, make its smallest key the new last and redistribute its nodes into
+ * lower buckets; every node moves down at most 32 times, so deleteMin is O(1) amortized per bit of key.
+ * findMin doesn't move nodes (it would raise the lower bound of the keys): it scans the first non-empty
+ * bucket and caches the result until the min changes.
+ */
+public class RadixHeap implements PriorityHeap<RadixHeap.Node, RadixHeap>
+{
+    private static final int NUM_OF_BUCKETS = 33;
+    private final Node[] buckets = new Node[NUM_OF_BUCKETS];
+    private int last = Integer.MIN_VALUE;
+    private int size;
+    private Node cachedMin;
+
+    @Override
+    public Node insert(int key) {
+        this.checkMonotone(key);
+        Node node = new Node(key);
+        this.addToBucket(node);
+        this.size++;
+        if (this.cachedMin != null && key < this.cachedMin.key)
+            this.cachedMin = node;
+        return node;
+    }
+
+    @Override
+    public Node findMin() {
+        if (this.size == 0)
+            return null;
+        if (this.cachedMin == null) {
+            int i = 0;
+            while (this.buckets[i] == null)
+                i++;
+            Node min = this.buckets[i];
+            for (Node node = min.next; node != null; node = node.next) {
+                if (node.key < min.key)
+                    min = node;
+            }
+            this.cachedMin = min;
+        }
+        return this.cachedMin;
+    }
+
+    @Override
+    public int getKey(Node node) {
+        return node.key;
+    }
+
+    @Override
+    public void deleteMin() {
+        Node min = this.findMin();
+        if (this.buckets[0] == null)
+            this.redistribute(); // Moves min, and the other nodes of its key, to bucket 0
+        this.removeFromBucket(min);
+        this.size--;
+        this.cachedMin = null;
+    }
+
+    @Override
+    public void decreaseKey(Node x, int delta) {
+        int newKey = x.key - delta;
+        this.checkMonotone(newKey);
+        this.removeFromBucket(x);
+        x.key = newKey;
+        this.addToBucket(x);
+        if (this.cachedMin != null && newKey < this.cachedMin.key)
+            this.cachedMin = x;
+    }
+
+    @Override
+    public void delete(Node x) {
+        this.removeFromBucket(x);
+        this.size--;
+        if (x == this.cachedMin)
+            this.cachedMin = null;
+    }
+
+    /**
+     * public void meld(RadixHeap heap2)
+     *
+     * Moves all the nodes of heap2 into the current heap, in O(size of heap2). Throws
+     * IllegalArgumentException, leaving both heaps unchanged, if a key of heap2 is smaller than the last
+     * key deleted from the current heap.
+     *
+     */
+    @Override
+    public void meld(RadixHeap heap2) {
+        if (heap2 == this || heap2.size == 0)
+            return;
+        for (Node list : heap2.buckets) {
+            for (Node node = list; node != null; node = node.next)
+                this.checkMonotone(node.key);
+        }
+        for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+            Node node = heap2.buckets[i];
+            heap2.buckets[i] = null;
+            while (node != null) {
+                Node next = node.next;
+                this.addToBucket(node);
+                node = next;
+            }
+        }
+        this.size += heap2.size;
+        heap2.size = 0;
+        heap2.cachedMin = null;
+        this.cachedMin = null;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+   /**
+    * public int lastDeletedMin()
+    *
+    * Returns the lower bound of the keys that may be inserted: the last key deleted by deleteMin,
+    * or Integer.MIN_VALUE if none was deleted yet.
+    *
+    */
+    public int lastDeletedMin() {
+        return this.last;
+    }
+
+    /**
+     * private void redistribute()
+     *
+     * Makes the smallest key of the first non-empty bucket the new last, and moves the nodes of that
+     * bucket to the buckets of their keys relative to it. Called by deleteMin when bucket 0 is empty.
+     *
+     */
+    private void redistribute() {
+        int i = 1;
+        while (this.buckets[i] == null)
+            i++;
+        Node list = this.buckets[i];
+        this.buckets[i] = null;
+        int minKey = list.key;
+        for (Node node = list.next; node != null; node = node.next)
+            minKey = Math.min(minKey, node.key);
+        this.last = minKey;
+        while (list != null) {
+            Node next = list.next;
+            this.addToBucket(list);
+            list = next;
+        }
+    }
+
+    private void checkMonotone(int key) {
+        if (key < this.last)
+            throw new IllegalArgumentException("Key " + key + " is below the last deleted minimum " + this.last);
+    }
+
+    /**
+     * private void addToBucket(Node node)
+     *
+     * Adds node to the front of the bucket of its key. The index is the position of the highest bit in which
+     * key and last differ: XOR gives the same bits for the signed ints as for their unsigned-order images.
+     *
+     */
+    private void addToBucket(Node node) {
+        int i = 32 - Integer.numberOfLeadingZeros(node.key ^ this.last);
+        node.bucket = i;
+        node.prev = null;
+        node.next = this.buckets[i];
+        if (node.next != null)
+            node.next.prev = node;
+        this.buckets[i] = node;
+    }
+
+    private void removeFromBucket(Node node) {
+        if (node.prev == null)
+            this.buckets[node.bucket] = node.next;
+        else
+            node.prev.next = node.next;
+        if (node.next != null)
+            node.next.prev = node.prev;
+        node.next = null;
+        node.prev = null;
+    }
+
+    /**
+    * public static class Node
+    *
+    * A node of RadixHeap.
+    */
+    public static class Node {
+        private int key;
+        private int bucket;
+        private Node prev;
+        private Node next;
+
+        private Node(int key) {
+            this.key = key;
+        }
+
+        /**
+         * public int getKey()
+         *
+         * Returns node's key
+         *
+         */
+        public int getKey() {
+            return this.key;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+import java.util.Arrays;
+
+/**
+ * RankPairingHeap
+ *
+ * A rank-pairing heap of integers (Haeupler, Sen and Tarjan), with the type-1 rank rule. Nodes form
+ * half-trees in the binary representation: a root has only a left child, the left child of a node is its
+ * first child and the right child its next sibling. The roots are kept in a circular list, pointed to by
+ * the min.
+ *
+ * Like FibonacciHeap, insert, meld and decreaseKey are O(1) amortized and deleteMin is O(log n) amortized,
+ * but there are no marks and no cascading cuts: decreaseKey cuts a single half-tree and walks up lowering
+ * ranks, and deleteMin links each pair of equal-rank half-trees at most once (one-pass linking).
+ */
+public class RankPairingHeap implements PriorityHeap<RankPairingHeap.Node, RankPairingHeap>
+{
+    private Node min;
+    private int size;
+    private Node[] buckets = new Node[8];
+
+    @Override
+    public Node insert(int key) {
+        Node node = new Node(key);
+        this.addRoot(node);
+        this.size++;
+        return node;
+    }
+
+    @Override
+    public Node findMin() {
+        return this.min;
+    }
+
+    @Override
+    public int getKey(Node node) {
+        return node.key;
+    }
+
+    /**
+     * public void deleteMin()
+     *
+     * Deletes the min, makes the half-trees of its right spine roots, and links the roots of equal rank
+     * in a single pass: each pair found in the buckets is linked and the result isn't linked again.
+     *
+     */
+    @Override
+    public void deleteMin() {
+        Node deleted = this.min;
+        this.size--;
+        Node root = deleted.next;
+        this.min = null;
+        int maxRank = -1;
+        while (root != deleted) {
+            Node nextRoot = root.next;
+            maxRank = Math.max(maxRank, this.bucketRoot(root));
+            root = nextRoot;
+        }
+        Node child = deleted.left;
+        while (child != null) { // The right spine of the left child holds the min's children
+            Node nextChild = child.right;
+            child.right = null;
+            child.parent = null;
+            child.rank = rank(child.left) + 1;
+            maxRank = Math.max(maxRank, this.bucketRoot(child));
+            child = nextChild;
+        }
+        for (int r = 0; r <= maxRank; r++) {
+            if (this.buckets[r] != null) {
+                this.addRoot(this.buckets[r]);
+                this.buckets[r] = null;
+            }
+        }
+        deleted.left = null;
+        deleted.next = deleted;
+    }
+
+    /**
+     * private int bucketRoot(Node root)
+     *
+     * Puts root in the bucket of its rank, or, if the bucket holds another root, links both and adds the
+     * result to the root list. Returns root's rank.
+     *
+     */
+    private int bucketRoot(Node root) {
+        int r = root.rank;
+        if (r >= this.buckets.length)
+            this.buckets = Arrays.copyOf(this.buckets, 2 * r + 2);
+        if (this.buckets[r] == null) {
+            this.buckets[r] = root;
+        } else {
+            this.addRoot(link(this.buckets[r], root));
+            this.buckets[r] = null;
+        }
+        return r;
+    }
+
+    @Override
+    public void decreaseKey(Node x, int delta) {
+        x.key -= delta;
+        if (x.parent != null)
+            this.cutToRoot(x);
+        if (x.key < this.min.key)
+            this.min = x;
+    }
+
+    @Override
+    public void delete(Node x) {
+        if (x.parent != null)
+            this.cutToRoot(x);
+        this.min = x; // x is treated as minus infinity, without changing its key
+        this.deleteMin();
+    }
+
+    /**
+     * private void cutToRoot(Node x)
+     *
+     * Detaches the half-tree of the non-root node x (x with its left subtree) and adds it to the root list.
+     * x's right subtree takes its place, and the ranks of x's former ancestors are lowered where the rank
+     * rule allows, stopping at the first one that keeps its rank.
+     *
+     */
+    private void cutToRoot(Node x) {
+        Node parent = x.parent;
+        Node right = x.right;
+        if (parent.left == x)
+            parent.left = right;
+        else
+            parent.right = right;
+        if (right != null)
+            right.parent = parent;
+        x.right = null;
+        x.parent = null;
+        x.rank = rank(x.left) + 1;
+        x.next = this.min.next;
+        this.min.next = x;
+        for (Node u = parent; u != null; u = u.parent) {
+            if (u.parent == null) { // A root's rank is its left child's rank plus one
+                u.rank = rank(u.left) + 1;
+                break;
+            }
+            int r1 = rank(u.left);
+            int r2 = rank(u.right);
+            int k = (r1 != r2) ? Math.max(r1, r2) : r1 + 1;
+            if (k >= u.rank)
+                break;
+            u.rank = k;
+        }
+    }
+
+    @Override
+    public void meld(RankPairingHeap heap2) {
+        if (heap2 == this || heap2.min == null)
+            return;
+        if (this.min == null) {
+            this.min = heap2.min;
+        } else { // Swapping two next pointers joins the circular lists
+            Node temp = this.min.next;
+            this.min.next = heap2.min.next;
+            heap2.min.next = temp;
+            if (heap2.min.key < this.min.key)
+                this.min = heap2.min;
+        }
+        this.size += heap2.size;
+        heap2.min = null;
+        heap2.size = 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * private void addRoot(Node root)
+     *
+     * Adds a half-tree root to the root list, and makes it the min if its key is smaller
+     *
+     */
+    private void addRoot(Node root) {
+        if (this.min == null) {
+            root.next = root;
+            this.min = root;
+            return;
+        }
+        root.next = this.min.next;
+        this.min.next = root;
+        if (root.key < this.min.key)
+            this.min = root;
+    }
+
+    /**
+     * private static Node link(Node a, Node b)
+     *
+     * Gets two half-tree roots of the same rank, and makes the one with the larger key the left child of
+     * the other (its former left subtree becomes the loser's right subtree). Returns the new root.
+     *
+     */
+    private static Node link(Node a, Node b) {
+        if (b.key < a.key) {
+            Node temp = a;
+            a = b;
+            b = temp;
+        }
+        b.right = a.left;
+        if (a.left != null)
+            a.left.parent = b;
+        a.left = b;
+        b.parent = a;
+        a.rank = b.rank + 1;
+        return a;
+    }
+
+    private static int rank(Node node) {
+        return (node == null) ? -1 : node.rank;
+    }
+
+    /**
+    * public static class Node
+    *
+    * A node of RankPairingHeap.
+    */
+    public static class Node {
+        private int key;
+        private int rank;
+        private Node left;
+        private Node right;
+        private Node parent;
+        private Node next; // Next root in the root list, for roots
+
+        private Node(int key) {
+            this.key = key;
+            this.next = this;
+        }
+
+        /**
+         * public int getKey()
+         *
+         * Returns node's key
+         *
+         */
+        public int getKey() {
+            return this.key;
+        }
+    }
+}
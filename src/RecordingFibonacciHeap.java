@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * RecordingFibonacciHeap
+ *
+ * A FibonacciHeap that also writes every insert, deleteMin, decreaseKey, delete and meld to a
+ * HeapTraceWriter, so that a production workload can be replayed offline (see TraceReplayer).
+ * cancel, split and clear are recorded as deletes of the elements they remove. An operation is recorded only
+ * once its arguments were accepted, so a rejected call (e.g. with a node of another heap) leaves no record.
+ *
+ * Nodes are numbered in the order they enter the heap, and a node's number is kept in its id field
+ * (so the heap must not be an IndexedFibonacciHeap, and melded-in nodes get new ids).
+ * Write errors are thrown as UncheckedIOException.
+ */
+public class RecordingFibonacciHeap extends FibonacciHeap
+{
+    private final HeapTraceWriter writer;
+    private int numOfNodes;
+    private boolean inDelete;
+
+    public RecordingFibonacciHeap(HeapTraceWriter writer) {
+        this(writer, HeapMetrics.NOOP);
+    }
+
+    public RecordingFibonacciHeap(HeapTraceWriter writer, HeapMetrics metrics) {
+        super(metrics);
+        this.writer = writer;
+    }
+
+    @Override
+    public HeapNode insert(int key) {
+        HeapNode node = super.insert(key);
+        this.record(HeapTrace.INSERT, key, 0);
+        node.setId(this.numOfNodes++);
+        return node;
+    }
+
+    @Override
+    public void insertAll(int[] keys, HeapNode[] nodes, boolean consolidate) {
+        HeapNode[] newNodes = (nodes != null) ? nodes : new HeapNode[keys.length];
+        super.insertAll(keys, newNodes, consolidate);
+        for (int i = 0; i < keys.length; i++) {
+            this.record(HeapTrace.INSERT, keys[i], 0);
+            newNodes[i].setId(this.numOfNodes++);
+        }
+    }
+
+    @Override
+    public void insertAllLinked(int[] keys, HeapNode[] nodes) {
+        HeapNode[] newNodes = (nodes != null) ? nodes : new HeapNode[keys.length];
+        super.insertAllLinked(keys, newNodes);
+        for (int i = 0; i < keys.length; i++) {
+            this.record(HeapTrace.INSERT, keys[i], 0);
+            newNodes[i].setId(this.numOfNodes++);
+        }
+    }
+
+    @Override
+    public void deleteMin() {
+        if (!this.inDelete)
+            this.record(HeapTrace.DELETE_MIN, this.findMin().getId(), 0);
+        super.deleteMin();
+    }
+
+    @Override
+    public void decreaseKey(HeapNode x, int delta) {
+        this.checkOwner(x);
+        this.record(HeapTrace.DECREASE_KEY, x.getId(), delta);
+        super.decreaseKey(x, delta);
+    }
+
+    @Override
+    public void decreaseKeys(HeapNode[] nodes, int[] deltas) {
+        if (nodes.length != deltas.length)
+            throw new IllegalArgumentException("nodes and deltas differ in length");
+        for (HeapNode node : nodes) // The whole batch is rejected before anything is recorded
+            this.checkOwner(node);
+        for (int i = 0; i < nodes.length; i++)
+            this.record(HeapTrace.DECREASE_KEY, nodes[i].getId(), deltas[i]);
+        super.decreaseKeys(nodes, deltas);
+    }
+
+    @Override
+    public void delete(HeapNode x) {
+        this.checkOwner(x);
+        this.record(HeapTrace.DELETE, x.getId(), 0);
+        this.inDelete = true; // FibonacciHeap.delete ends with a deleteMin, which isn't recorded again
+        try {
+            super.delete(x);
+        } finally {
+            this.inDelete = false;
+        }
+    }
+
+    /**
+     * public void cancel(HeapNode x)
+     *
+     * Records the cancellation as a delete, which leaves the same elements in the heap.
+     *
+     */
+    @Override
+    public void cancel(HeapNode x) {
+        this.checkOwner(x);
+        this.record(HeapTrace.DELETE, x.getId(), 0);
+        this.inDelete = true; // Cancelling the min deletes it with deleteMin
+        try {
+            super.cancel(x);
+        } finally {
+            this.inDelete = false;
+        }
+    }
+
+    /**
+     * public void meld(FibonacciHeap heap2)
+     *
+     * Melds heap2 into the heap, then records the keys of heap2 and numbers its nodes (but not the cancelled
+     * ones), so a rejected meld changes neither the trace nor heap2's ids.
+     *
+     */
+    @Override
+    public void meld(FibonacciHeap heap2) {
+        List<HeapNode> melded = liveNodes(heap2);
+        super.meld(heap2);
+        if (melded.isEmpty())
+            return;
+        for (HeapNode node : melded) {
+            this.record(HeapTrace.MELD_INSERT, node.getKey(), 0);
+            node.setId(this.numOfNodes++);
+        }
+        this.record(HeapTrace.MELD, 0, 0);
+    }
+
+    /**
+     * public FibonacciHeap split(Predicate<HeapNode> rootFilter)
+     *
+     * Splits the heap, and records the elements moved to the returned heap as deletes. The returned heap
+     * isn't recorded.
+     *
+     */
+    @Override
+    public FibonacciHeap split(Predicate<HeapNode> rootFilter) {
+        FibonacciHeap heap2 = super.split(rootFilter);
+        for (HeapNode node : liveNodes(heap2))
+            this.record(HeapTrace.DELETE, node.getId(), 0);
+        return heap2;
+    }
+
+    /**
+     * public void clear()
+     *
+     * Records every element of the heap as deleted, and clears the heap. Unlike FibonacciHeap.clear, this
+     * takes O(n) time.
+     *
+     */
+    @Override
+    public void clear() {
+        for (HeapNode node : liveNodes(this))
+            this.record(HeapTrace.DELETE, node.getId(), 0);
+        super.clear();
+    }
+
+    /**
+     * private static List<HeapNode> liveNodes(FibonacciHeap heap)
+     *
+     * Returns the nodes of heap's trees that are not cancelled, walking the trees without recursion.
+     *
+     */
+    private static List<HeapNode> liveNodes(FibonacciHeap heap) {
+        List<HeapNode> nodes = new ArrayList<>(heap.size());
+        if (heap.isEmpty())
+            return nodes;
+        ArrayDeque<HeapNode> siblingLists = new ArrayDeque<>();
+        siblingLists.push(heap.getFirst());
+        while (!siblingLists.isEmpty()) {
+            HeapNode listFirst = siblingLists.pop();
+            HeapNode node = listFirst;
+            do {
+                if (!node.isCancelled())
+                    nodes.add(node);
+                if (node.getChild() != null)
+                    siblingLists.push(node.getChild());
+                node = node.getNext();
+            } while (node != listFirst);
+        }
+        return nodes;
+    }
+
+   /**
+    * public void flush()
+    *
+    * Writes the buffered operations out.
+    *
+    */
+    public void flush() {
+        try {
+            this.writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void record(int code, int arg1, int arg2) {
+        try {
+            this.writer.write(code, arg1, arg2);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SharedHeapMetrics
+ *
+ * HeapMetrics that can be shared by many heaps used from different threads (for example the shards of a
+ * MultiQueueFibonacciHeap): counters are LongAdders and maximums are LongAccumulators, so concurrent
+ * reports don't contend on a single field. Reports the same metrics as CountingHeapMetrics.
+ */
+public class SharedHeapMetrics implements HeapMetrics
+{
+    private final LongAdder links = new LongAdder();
+    private final LongAdder cuts = new LongAdder();
+    private final LongAdder marks = new LongAdder();
+    private final LongAdder cascadingCuts = new LongAdder();
+    private final LongAdder[] cascadingCutDepths = new LongAdder[CountingHeapMetrics.DEPTH_BUCKETS];
+    private final LongAdder deleteMins = new LongAdder();
+    private final LongAdder rootListLengthTotal = new LongAdder();
+    private final LongAccumulator rootListLengthMax = new LongAccumulator(Math::max, 0);
+    private final LongAdder consolidations = new LongAdder();
+    private final LongAccumulator maxRank = new LongAccumulator(Math::max, 0);
+
+    public SharedHeapMetrics() {
+        for (int i = 0; i < this.cascadingCutDepths.length; i++)
+            this.cascadingCutDepths[i] = new LongAdder();
+    }
+
+    @Override
+    public void onLink() {
+        this.links.increment();
+    }
+
+    @Override
+    public void onLinks(long links) {
+        this.links.add(links);
+    }
+
+    @Override
+    public void onCut() {
+        this.cuts.increment();
+    }
+
+    @Override
+    public void onCascadingCut(int cuts) {
+        this.cascadingCuts.increment();
+        this.cascadingCutDepths[CountingHeapMetrics.depthBucket(cuts)].increment();
+    }
+
+    @Override
+    public void onMark() {
+        this.marks.increment();
+    }
+
+    @Override
+    public void onDeleteMin(int numOfTrees) {
+        this.deleteMins.increment();
+        this.rootListLengthTotal.add(numOfTrees);
+        this.rootListLengthMax.accumulate(numOfTrees);
+    }
+
+    @Override
+    public void onConsolidation(int maxRank) {
+        this.consolidations.increment();
+        this.maxRank.accumulate(maxRank);
+    }
+
+    @Override
+    public Map<String, Long> snapshot() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("links", this.links.sum());
+        values.put("cuts", this.cuts.sum());
+        values.put("marks", this.marks.sum());
+        values.put("consolidations", this.consolidations.sum());
+        values.put("maxRank", this.maxRank.get());
+        values.put("deleteMins", this.deleteMins.sum());
+        values.put("rootListLengthTotal", this.rootListLengthTotal.sum());
+        values.put("rootListLengthMax", this.rootListLengthMax.get());
+        values.put("cascadingCuts", this.cascadingCuts.sum());
+        for (int i = 1; i < this.cascadingCutDepths.length; i++) {
+            long count = this.cascadingCutDepths[i].sum();
+            if (count != 0)
+                values.put(CountingHeapMetrics.depthBucketName(i), count);
+        }
+        return values;
+    }
+}
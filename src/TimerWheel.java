@@ -0,0 +1,443 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * TimerWheel
+ *
+ * A deadline scheduler over int millisecond deadlines: a hierarchical timing wheel in front of a FibonacciHeap.
+ * Level l of the wheel has 64 slots of 64^l ms each. A timer goes to the lowest level whose slot holds its
+ * deadline while the deadline and the current time agree on all the bits above that level, so schedule
+ * and cancel are O(1) and the wheel spans 64^levels ms ahead. Only timers further ahead go to the heap,
+ * and they move to the wheel when the current time reaches their 64^levels ms block.
+ *
+ * Time only moves forward, by poll: the wheel jumps to the next occupied slot (found in a bitmap per level),
+ * and the timers of a slot above level 0 are cascaded to lower levels when their slot is reached.
+ * cancel only marks the timer (a tombstone); cancelled timers are dropped when their slot is reached, or
+ * when they are met at the top of the heap. The heap is rebuilt without its cancelled timers once they
+ * outnumber the others.
+ *
+ * Deadlines are assumed not to wrap around the int range while the wheel is used.
+ */
+public class TimerWheel
+{
+    public static final int DEFAULT_LEVELS = 3;
+    public static final int MAX_LEVELS = 5;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MIN_PURGE = 1024; // Heap tombstones tolerated before purging, whatever the heap size
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int FIRED = 2;
+    private final int levels;
+    private final Timer[][] slots; // slots[level][i]: a list through Timer.next
+    private final long[] occupied; // Bit i of occupied[level] is set if and only if slots[level][i] isn't empty
+    private final ArrayDeque<Timer> due = new ArrayDeque<>(); // Timers whose deadline was reached, by deadline
+    private final ArrayDeque<Timer> laterDue = new ArrayDeque<>(); // Scratch stack of addDue
+    private FibonacciHeap overflow = new FibonacciHeap();
+    private Timer[] overflowTimers = new Timer[16]; // By the id of their heap node
+    private int[] freeIds = new int[16];
+    private int numOfFreeIds;
+    private int numOfIds;
+    private int overflowTombstones;
+    private int now;
+    private int size;
+
+    /**
+     * public static final class Timer
+     *
+     * A scheduled deadline, with an optional caller id, returned by schedule and poll.
+     */
+    public static final class Timer {
+        private final TimerWheel wheel;
+        private final int deadline;
+        private final int id;
+        private Timer next;
+        private int state = PENDING;
+        private int overflowId = -1; // Id of its heap node while in the heap
+
+        private Timer(TimerWheel wheel, int deadline, int id) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.id = id;
+        }
+
+        public int getDeadline() {
+            return this.deadline;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public boolean isCancelled() {
+            return this.state == CANCELLED;
+        }
+
+        public boolean isFired() {
+            return this.state == FIRED;
+        }
+    }
+
+    public TimerWheel(int now) {
+        this(now, DEFAULT_LEVELS);
+    }
+
+    /**
+     * public TimerWheel(int now, int levels)
+     *
+     * Creates an empty wheel at time now, with levels levels (1 to MAX_LEVELS), which hold the deadlines
+     * up to about 64^levels ms ahead.
+     *
+     */
+    public TimerWheel(int now, int levels) {
+        if (levels < 1 || levels > MAX_LEVELS)
+            throw new IllegalArgumentException("Levels must be between 1 and " + MAX_LEVELS + ": " + levels);
+        this.now = now;
+        this.levels = levels;
+        this.slots = new Timer[levels][SLOTS];
+        this.occupied = new long[levels];
+    }
+
+   /**
+    * public Timer schedule(int deadline)
+    *
+    * Schedules a timer at deadline, with id -1, and returns it.
+    *
+    */
+    public Timer schedule(int deadline) {
+        return this.schedule(deadline, -1);
+    }
+
+   /**
+    * public Timer schedule(int deadline, int id)
+    *
+    * Schedules a timer at deadline, carrying the given id, and returns it. A deadline that was already
+    * reached makes the timer due at once, in deadline order: the next poll returns it before the due timers
+    * with a later deadline, which it is placed ahead of in time linear in their number.
+    *
+    */
+    public Timer schedule(int deadline, int id) {
+        Timer timer = new Timer(this, deadline, id);
+        this.place(timer);
+        this.size++;
+        return timer;
+    }
+
+   /**
+    * public boolean cancel(Timer timer)
+    *
+    * Cancels a timer of this wheel in O(1), leaving a tombstone. Returns false if the timer had already
+    * fired or been cancelled.
+    *
+    */
+    public boolean cancel(Timer timer) {
+        if (timer.wheel != this)
+            throw new IllegalArgumentException("Timer of another wheel");
+        if (timer.state != PENDING)
+            return false;
+        timer.state = CANCELLED;
+        this.size--;
+        if (timer.overflowId >= 0) {
+            this.overflowTombstones++;
+            if (this.overflowTombstones > MIN_PURGE && 2 * this.overflowTombstones > this.overflow.size())
+                this.purgeOverflow();
+        }
+        return true;
+    }
+
+   /**
+    * public Timer poll(int time)
+    *
+    * Moves the current time forward to time (if it is later), and returns the pending timer with the
+    * earliest deadline that was reached, marked as fired, or null if there is none.
+    *
+    */
+    public Timer poll(int time) {
+        do {
+            Timer timer;
+            while ((timer = this.due.pollFirst()) != null) {
+                if (timer.state == PENDING) {
+                    timer.state = FIRED;
+                    this.size--;
+                    return timer;
+                }
+            }
+        } while (this.advance(time));
+        return null;
+    }
+
+   /**
+    * public Timer peek()
+    *
+    * Returns the pending timer with the earliest deadline, which poll returns once the time reaches its
+    * deadline, or null if there is none. Looks at the timers of one slot or at the heap's minimum, and
+    * drops the cancelled timers met on the way.
+    *
+    */
+    public Timer peek() {
+        while (!this.due.isEmpty()) {
+            if (this.due.peekFirst().state == PENDING)
+                return this.due.peekFirst();
+            this.due.pollFirst();
+        }
+        for (int level = 0; level < this.levels; level++) {
+            int slot;
+            while ((slot = this.nextSlot(level)) >= 0) {
+                Timer earliest = null;
+                Timer kept = null;
+                for (Timer timer = this.slots[level][slot]; timer != null; ) { // Drops the tombstones
+                    Timer next = timer.next;
+                    if (timer.state == PENDING) {
+                        timer.next = kept;
+                        kept = timer;
+                        if (earliest == null || timer.deadline < earliest.deadline)
+                            earliest = timer;
+                    }
+                    timer = next;
+                }
+                this.slots[level][slot] = kept;
+                if (kept != null)
+                    return earliest;
+                this.occupied[level] &= ~(1L << slot);
+            }
+        }
+        this.dropCancelledOverflowMin();
+        return this.overflow.isEmpty() ? null : this.overflowTimers[this.overflow.findMin().getId()];
+    }
+
+   /**
+    * public int size()
+    *
+    * Returns the number of pending timers.
+    *
+    */
+    public int size() {
+        return this.size;
+    }
+
+   /**
+    * public boolean isEmpty()
+    *
+    * Returns true if and only if there is no pending timer.
+    *
+    */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+   /**
+    * public int getTime()
+    *
+    * Returns the current time: the latest time given to poll, or to the constructor.
+    *
+    */
+    public int getTime() {
+        return this.now;
+    }
+
+   /**
+    * public int overflowSize()
+    *
+    * Returns the number of timers in the heap, cancelled ones included.
+    *
+    */
+    public int overflowSize() {
+        return this.overflow.size();
+    }
+
+    /**
+     * private void place(Timer timer)
+     *
+     * Puts a timer in the due list, in its wheel slot, or in the heap, according to the current time
+     *
+     */
+    private void place(Timer timer) {
+        int deadline = timer.deadline;
+        if (deadline <= this.now) {
+            this.addDue(timer);
+            return;
+        }
+        int level = (31 - Integer.numberOfLeadingZeros(deadline ^ this.now)) / SLOT_BITS; // Of the highest bit that differs
+        if (level >= this.levels) {
+            FibonacciHeap.HeapNode node = this.overflow.insert(deadline);
+            int overflowId = this.newOverflowId();
+            node.setId(overflowId);
+            this.overflowTimers[overflowId] = timer;
+            timer.overflowId = overflowId;
+            return;
+        }
+        int slot = (deadline >>> (level * SLOT_BITS)) & (SLOTS - 1);
+        timer.next = this.slots[level][slot];
+        this.slots[level][slot] = timer;
+        this.occupied[level] |= 1L << slot;
+    }
+
+    /**
+     * private void addDue(Timer timer)
+     *
+     * Adds a timer whose deadline was reached to the due list, after the due timers whose deadline isn't later.
+     * The wheel empties its slots in deadline order, so only a timer scheduled past its deadline is placed
+     * ahead of others (the cancelled timers it passes are dropped).
+     *
+     */
+    private void addDue(Timer timer) {
+        Timer last = this.due.peekLast();
+        if (last == null || last.deadline <= timer.deadline) {
+            this.due.addLast(timer);
+            return;
+        }
+        while (!this.due.isEmpty() && this.due.peekLast().deadline > timer.deadline) {
+            Timer later = this.due.pollLast();
+            if (later.state == PENDING)
+                this.laterDue.push(later);
+        }
+        this.due.addLast(timer);
+        while (!this.laterDue.isEmpty())
+            this.due.addLast(this.laterDue.pop());
+    }
+
+    /**
+     * private boolean advance(int time)
+     *
+     * Moves the current time to the next occupied slot, or to the heap's next block, and empties it
+     * (into the due list, or into lower levels), if that is not later than time. Otherwise moves the
+     * current time to time and returns false.
+     *
+     */
+    private boolean advance(int time) {
+        for (int level = 0; level < this.levels; level++) {
+            int slot = this.nextSlot(level);
+            if (slot < 0)
+                continue;
+            int shift = level * SLOT_BITS;
+            int slotStart = (this.now & ~((1 << (shift + SLOT_BITS)) - 1)) | (slot << shift);
+            if (slotStart > time)
+                break;
+            this.now = Math.max(this.now, slotStart);
+            Timer timer = this.slots[level][slot];
+            this.slots[level][slot] = null;
+            this.occupied[level] &= ~(1L << slot);
+            while (timer != null) {
+                Timer next = timer.next;
+                timer.next = null;
+                if (timer.state == PENDING) {
+                    if (level == 0)
+                        this.addDue(timer);
+                    else
+                        this.place(timer);
+                }
+                timer = next;
+            }
+            return true;
+        }
+        if (this.isWheelEmpty()) {
+            this.dropCancelledOverflowMin();
+            int shift = this.levels * SLOT_BITS;
+            if (!this.overflow.isEmpty() && (this.overflow.findMin().getKey() >> shift) << shift <= time) {
+                this.now = (this.overflow.findMin().getKey() >> shift) << shift;
+                this.cascadeOverflow();
+                return true;
+            }
+        }
+        this.now = Math.max(this.now, time);
+        return false;
+    }
+
+    /**
+     * private int nextSlot(int level)
+     *
+     * Returns the first occupied slot of level at or after the current time's slot, or -1
+     *
+     */
+    private int nextSlot(int level) {
+        int index = (this.now >>> (level * SLOT_BITS)) & (SLOTS - 1);
+        long candidates = this.occupied[level] & (-1L << index); // The current slot is empty above level 0
+        return (candidates == 0) ? -1 : Long.numberOfTrailingZeros(candidates);
+    }
+
+    private boolean isWheelEmpty() {
+        for (long bits : this.occupied) {
+            if (bits != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * private void cascadeOverflow()
+     *
+     * Moves the timers of the heap that are in the current time's top level block to the wheel
+     *
+     */
+    private void cascadeOverflow() {
+        int shift = this.levels * SLOT_BITS;
+        while (!this.overflow.isEmpty() && (this.overflow.findMin().getKey() >> shift) == (this.now >> shift)) {
+            Timer timer = this.removeOverflowMin();
+            if (timer.state == PENDING)
+                this.place(timer);
+        }
+    }
+
+    private void dropCancelledOverflowMin() {
+        while (!this.overflow.isEmpty() && this.overflowTimers[this.overflow.findMin().getId()].state != PENDING)
+            this.removeOverflowMin();
+    }
+
+    private Timer removeOverflowMin() {
+        int overflowId = this.overflow.findMin().getId();
+        Timer timer = this.overflowTimers[overflowId];
+        this.overflow.deleteMin();
+        this.overflowTimers[overflowId] = null;
+        this.freeOverflowId(overflowId);
+        timer.overflowId = -1;
+        if (timer.state == CANCELLED)
+            this.overflowTombstones--;
+        return timer;
+    }
+
+    private int newOverflowId() {
+        if (this.numOfFreeIds > 0)
+            return this.freeIds[--this.numOfFreeIds];
+        if (this.numOfIds == this.overflowTimers.length)
+            this.overflowTimers = Arrays.copyOf(this.overflowTimers, 2 * this.numOfIds);
+        return this.numOfIds++;
+    }
+
+    private void freeOverflowId(int overflowId) {
+        if (this.numOfFreeIds == this.freeIds.length)
+            this.freeIds = Arrays.copyOf(this.freeIds, 2 * this.freeIds.length);
+        this.freeIds[this.numOfFreeIds++] = overflowId;
+    }
+
+    /**
+     * private void purgeOverflow()
+     *
+     * Rebuilds the heap from its pending timers, in O(heap size), with new compact ids
+     *
+     */
+    private void purgeOverflow() {
+        Timer[] pending = new Timer[this.overflow.size() - this.overflowTombstones];
+        int count = 0;
+        for (int i = 0; i < this.numOfIds; i++) {
+            Timer timer = this.overflowTimers[i];
+            if (timer != null && timer.state == PENDING)
+                pending[count++] = timer;
+            else if (timer != null)
+                timer.overflowId = -1;
+        }
+        int[] deadlines = new int[count];
+        for (int i = 0; i < count; i++)
+            deadlines[i] = pending[i].deadline;
+        FibonacciHeap.HeapNode[] nodes = new FibonacciHeap.HeapNode[count];
+        this.overflow = new FibonacciHeap();
+        this.overflow.insertAll(deadlines, nodes, false);
+        this.overflowTimers = Arrays.copyOf(pending, Math.max(count, 16));
+        for (int i = 0; i < count; i++) {
+            nodes[i].setId(i);
+            pending[i].overflowId = i;
+        }
+        this.numOfIds = count;
+        this.numOfFreeIds = 0;
+        this.overflowTombstones = 0;
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * TraceReplayer
+ *
+ * Replays a recorded heap trace (see RecordingFibonacciHeap) against heap implementations, and reports the
+ * latency percentiles of every operation type. For FibonacciHeap it also reports the links and cuts made,
+ * and samples the potential, the number of trees and the number of marked nodes along the trace.
+ *
+ * Usage: java TraceReplayer trace [-w warmupReplays] [-s samplePeriod] [heap names...]
+ * where the heap names are those of HeapSelector.defaultCandidates (all of them by default).
+ */
+public class TraceReplayer
+{
+    private static final String[] OPERATION_NAMES = {"insert", "deleteMin", "decreaseKey", "delete", "meldInsert", "meld"};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+    public static void main(String[] args) throws IOException {
+        Path path = null;
+        int warmup = 3;
+        int samplePeriod = 0;
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-w": warmup = Integer.parseInt(args[++i]); break;
+                case "-s": samplePeriod = Integer.parseInt(args[++i]); break;
+                default:
+                    if (path == null)
+                        path = Paths.get(args[i]);
+                    else
+                        selected.add(args[i]);
+            }
+        }
+        if (path == null) {
+            System.err.println("Usage: java TraceReplayer trace [-w warmupReplays] [-s samplePeriod] [heap names...]");
+            System.exit(2);
+        }
+        HeapTrace trace = HeapTrace.read(path);
+        System.out.println(path + ": " + trace.length() + " operations, " + trace.numOfInserts() + " nodes");
+        if (samplePeriod <= 0)
+            samplePeriod = Math.max(trace.length() / 20, 1);
+        for (HeapSelector.Candidate<?, ?> candidate : HeapSelector.defaultCandidates()) {
+            if (!selected.isEmpty() && !selected.contains(candidate.getName()))
+                continue;
+            System.out.println();
+            System.out.println(candidate.getName());
+            try {
+                replay(candidate, trace, warmup);
+            } catch (IllegalArgumentException e) {
+                System.out.println("  unsupported: " + e.getMessage());
+            }
+        }
+        replayFibonacci(trace, samplePeriod);
+    }
+
+    /**
+     * static <N, H extends PriorityHeap<N, H>> void replay(HeapSelector.Candidate<N, H> candidate, HeapTrace trace, int warmup)
+     *
+     * Replays trace warmup times untimed, then once timing every operation, and prints the percentiles.
+     */
+    static <N, H extends PriorityHeap<N, H>> void replay(HeapSelector.Candidate<N, H> candidate, HeapTrace trace,
+                                                        int warmup) {
+        for (int i = 0; i < warmup; i++)
+            candidate.replay(trace);
+        Latencies latencies = new Latencies(trace);
+        candidate.replay(trace, candidate.newHeap(), latencies);
+        latencies.print();
+    }
+
+    /**
+     * static void replayFibonacci(HeapTrace trace, int samplePeriod)
+     *
+     * Replays trace on a FibonacciHeap with CountingHeapMetrics, and prints its potential, number of trees
+     * and number of marked nodes every samplePeriod operations, then the totals of its metrics.
+     */
+    static void replayFibonacci(HeapTrace trace, int samplePeriod) {
+        CountingHeapMetrics metrics = new CountingHeapMetrics();
+        FibonacciHeap heap = new FibonacciHeap(metrics);
+        System.out.println();
+        System.out.println("fibonacci over time");
+        System.out.printf("  %12s %12s %12s %12s %12s %12s%n", "operation", "size", "potential", "trees",
+                "marked", "links");
+        trace.replay(heap, () -> new FibonacciHeap(metrics), (index, code, nanos) -> {
+            if ((index + 1) % samplePeriod == 0 || index + 1 == trace.length()) {
+                int marked = heap.size() - heap.nonMarked();
+                System.out.printf("  %12d %12d %12d %12d %12d %12d%n", index + 1, heap.size(), heap.potential(),
+                        heap.potential() - 2 * marked, marked, metrics.getLinks());
+            }
+        });
+        System.out.println("  " + metrics.snapshot());
+    }
+
+    /**
+     * static class Latencies
+     *
+     * A HeapTrace.Listener that keeps the duration of every operation, by operation type.
+     */
+    static class Latencies implements HeapTrace.Listener {
+        private final long[][] nanos = new long[OPERATION_NAMES.length][];
+        private final int[] counts = new int[OPERATION_NAMES.length];
+
+        Latencies(HeapTrace trace) {
+            int[] total = new int[OPERATION_NAMES.length];
+            for (int i = 0; i < trace.length(); i++)
+                total[trace.code(i)]++;
+            for (int code = 0; code < total.length; code++)
+                this.nanos[code] = new long[total[code]];
+        }
+
+        @Override
+        public void onOperation(int index, int code, long nanos) {
+            this.nanos[code][this.counts[code]++] = nanos;
+        }
+
+        void print() {
+            StringBuilder header = new StringBuilder(String.format("  %-12s %10s", "operation", "count"));
+            for (double p : PERCENTILES)
+                header.append(String.format(" %10s", (p == 100) ? "max" : (p == (int) p) ? "p" + (int) p : "p" + p));
+            System.out.println(header + "   (ns)");
+            for (int code = 0; code < this.nanos.length; code++) {
+                long[] sorted = Arrays.copyOf(this.nanos[code], this.counts[code]);
+                if (sorted.length == 0)
+                    continue;
+                Arrays.sort(sorted);
+                StringBuilder line = new StringBuilder(String.format("  %-12s %10d", OPERATION_NAMES[code], sorted.length));
+                for (double p : PERCENTILES)
+                    line.append(String.format(" %10d", sorted[(int) Math.ceil(p / 100 * sorted.length) - 1]));
+                System.out.println(line);
+            }
+        }
+    }
+}